@@ -0,0 +1,129 @@
+package benchmark;
+
+import backtracking.Backtracker;
+import backtracking.Configuration;
+import backtracking.MostConstrainedOrder;
+import backtracking.SafeConfig;
+import model.LasersModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for the solver and model hot paths, on each of the
+ * bundled safes. Every benchmark returns its result, so JMH keeps the JIT
+ * from dropping the work as dead code.
+ *
+ * Run them from the project directory with:
+ *     gradle jmh
+ * The safes are looked up in the directory named by the lasers.safes
+ * system property, which the build sets to tests.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class SolverBenchmark {
+
+    /** The safe, by the size its file is named after.*/
+    @Param({"4x4", "7x7", "8x8", "10x8", "14x14"})
+    public String safe;
+
+    /** The safe's file.*/
+    private String file;
+
+    /** The safe as parsed, never searched.*/
+    private SafeConfig parsed;
+
+    /** The safe's solution.*/
+    private SafeConfig solved;
+
+    /** A model of the safe with the solution's lasers placed.*/
+    private LasersModel model;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        file = new File(System.getProperty("lasers.safes", "tests"), safe + "safe.txt").getPath();
+        parsed = new SafeConfig(file);
+        solved = solve(new SafeConfig(parsed));
+        model = new LasersModel(file);
+        char[][] grid = solved.getSafe();
+        for (int r = 0; r < parsed.getBoard().getRownum(); r++) {
+            for (int c = 0; c < parsed.getBoard().getColnum(); c++) {
+                if (grid[c][r] == SafeConfig.LASER) {
+                    model.addLaser(c, r);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        model.close();
+    }
+
+    @Benchmark
+    public SafeConfig solveInPlace() {
+        return solve(new SafeConfig(parsed));
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return solved.isValid();
+    }
+
+    @Benchmark
+    public boolean isGoal() {
+        return solved.isGoal();
+    }
+
+    @Benchmark
+    public char[][] copyWithBeams() {
+        return solved.copyWithBeams();
+    }
+
+    @Benchmark
+    public boolean modelIsValid() {
+        return model.isValid();
+    }
+
+    @Benchmark
+    public SafeConfig parse() throws FileNotFoundException {
+        return new SafeConfig(file);
+    }
+
+    /**
+     * Solves a safe the way the model does: propagation first, then the
+     * in-place search in most-constrained order.
+     *
+     * @param config a fresh configuration
+     * @return the solution, or the configuration itself if there is none
+     */
+    private static SafeConfig solve(SafeConfig config) {
+        config.setCellOrder(new MostConstrainedOrder());
+        if (!config.propagate()) {
+            return config;
+        }
+        Optional<Configuration> sol = new Backtracker(false).solveInPlace(config);
+        return sol.isPresent() ? (SafeConfig) sol.get() : config;
+    }
+}
@@ -3,8 +3,17 @@ package backtracking;
 import model.LasersModel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class represents the classic recursive backtracking algorithm.
@@ -25,13 +34,46 @@ public class Backtracker {
 
     private boolean debug;
 
+    /** Set by another thread to make an in-place search give up early.*/
+    private AtomicBoolean stop;
+
+    /** The counters of the most recent search.*/
+    private SolverStats stats = new SolverStats();
+
+    /** Called with the counters every progressMillis while searching in place, if set.*/
+    private Consumer<SolverStats> progress;
+
+    /** How often, in milliseconds, the progress listener is called.*/
+    private long progressMillis;
+
+    /** The System.nanoTime() after which an in-place search gives up.*/
+    private long deadline = Long.MAX_VALUE;
+
+    /** How long, in nanoseconds, each in-place search may run, or 0 for no limit.*/
+    private long timeLimit;
+
+    /** The clock is read once every this many nodes, plus one.*/
+    private static final int CLOCK_MASK = 1023;
+
     /**
      * Initialize a new backtracker.
      *
      * @param debug Is debugging output enabled?
      */
     public Backtracker(boolean debug) {
+        this(debug, new AtomicBoolean());
+    }
+
+    /**
+     * Initialize a new backtracker whose in-place search gives up as soon
+     * as the given flag is set, so several searches can share one flag.
+     *
+     * @param debug Is debugging output enabled?
+     * @param stop  The flag to watch
+     */
+    public Backtracker(boolean debug, AtomicBoolean stop) {
         this.debug = debug;
+        this.stop = stop;
         if (this.debug) {
             System.out.println("Backtracker debugging enabled...");
         }
@@ -50,6 +92,60 @@ public class Backtracker {
         }
     }
 
+    /**
+     * Returns the counters of the most recent search, or of the one that
+     * is running. Each iterator from solutions() keeps its own counters
+     * instead.
+     *
+     * @return The counters
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Cancels the search that is running, and any other search sharing
+     * its stop flag. The searching thread notices within one node.
+     */
+    public void cancel() {
+        stop.set(true);
+    }
+
+    /**
+     * Makes in-place searches give up once System.nanoTime() passes the
+     * given value. A search that gives up returns no solution, and its
+     * counters say it timed out.
+     *
+     * @param nanoTime The deadline, or Long.MAX_VALUE for none
+     */
+    public void setDeadline(long nanoTime) {
+        this.deadline = nanoTime;
+    }
+
+    /**
+     * Makes every in-place search give up once it has run for the given
+     * time. The clock is only read every thousand or so nodes, so the
+     * search may overrun by a fraction of a millisecond.
+     *
+     * @param millis The time limit, or 0 for none
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis * 1000000L;
+    }
+
+    /**
+     * Asks for the counters to be handed to a listener at regular
+     * intervals while an in-place search runs. The listener is called on
+     * the searching thread.
+     *
+     * @param intervalMillis How often to call the listener
+     * @param listener       The listener
+     */
+    public void setProgress(long intervalMillis, Consumer<SolverStats> listener) {
+        this.progressMillis = intervalMillis;
+        this.progress = listener;
+    }
+
     /**
      * Try find a solution, if one exists, for a given configuration.
      *
@@ -57,27 +153,356 @@ public class Backtracker {
      * @return A solution config, or null if no solution
      */
     public Optional<Configuration> solve(Configuration config) {
+        stats = new SolverStats();
+        stats.start();
+        Optional<Configuration> sol = solve(config, 0);
+        stats.finish();
+        return sol;
+    }
+
+    /**
+     * The recursive part of solve().
+     *
+     * @param config A valid configuration
+     * @param depth  How many successors deep the configuration is
+     * @return A solution config, or empty if no solution
+     */
+    private Optional<Configuration> solve(Configuration config, int depth) {
         debugPrint("Current config", config);
+        stats.nodes++;
+        stats.maxDepth = Math.max(stats.maxDepth, depth);
         if (config.isGoal()) {
             debugPrint("\tGoal config", config);
+            stats.solved();
             return Optional.of(config);
         } else {
             for (Configuration child : config.getSuccessors()) {
                 if (child.isValid()) {
                     debugPrint("\tValid successor", child);
-                    Optional<Configuration> sol = solve(child);
+                    stats.valid++;
+                    Optional<Configuration> sol = solve(child, depth + 1);
                     if (sol.isPresent()) {
                         return sol;
                     }
                 } else {
                     debugPrint("\tInvalid successor", child);
+                    stats.invalid++;
                 }
             }
             // implicit backtracking happens here
+            stats.backtracks++;
         }
         return Optional.empty();
     }
 
+    /**
+     * Try find a solution, if one exists, by walking a single configuration
+     * through the search with apply() and undo() instead of copying it for
+     * every successor. The search is iterative, so the only memory it
+     * needs beyond the configuration is one option counter per level.
+     *
+     * @param config A valid configuration; it is back in its starting
+     *               state when the search returns
+     * @return A copy of the solution config, or empty if no solution,
+     * the stop flag was set or the time ran out; getStats() tells which
+     */
+    public Optional<Configuration> solveInPlace(MutableConfiguration config) {
+        Search search = new Search(config);
+        stats = search.stats;
+        Configuration sol = search.next();
+        search.unwind();
+        return Optional.ofNullable(sol);
+    }
+
+    /**
+     * Enumerates every solution of a configuration, one at a time. Each
+     * call to next() picks the in-place search up where the previous
+     * solution left it, so the tree is only walked once however many
+     * solutions are asked for. The search runs on a copy, so the given
+     * configuration is never modified, and nothing is searched until the
+     * first call to hasNext() or next().
+     *
+     * @param config A valid configuration
+     * @return An iterator over copies of the solution configs; it ends
+     * early if the stop flag is set or the time runs out
+     */
+    public SolutionIterator solutions(MutableConfiguration config) {
+        return new SolutionIterator(new Search(config.snapshot()));
+    }
+
+    /**
+     * Streams every solution of a configuration. Solutions are only
+     * searched for as the stream asks for them, so limit() and
+     * findFirst() cut the search short.
+     *
+     * @param config A valid configuration; it is not modified
+     * @return A sequential stream of copies of the solution configs
+     */
+    public Stream<Configuration> solutionStream(MutableConfiguration config) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutions(config),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Counts the solutions of a configuration, giving up once it has
+     * found a given number of them.
+     *
+     * @param config A valid configuration; it is not modified
+     * @param limit  The most solutions to look for
+     * @return The number of solutions, at most limit
+     */
+    public int countSolutions(MutableConfiguration config, int limit) {
+        Search search = new Search(config);
+        stats = search.stats;
+        int count = 0;
+        while (count < limit && search.next() != null) {
+            count++;
+        }
+        search.unwind();
+        return count;
+    }
+
+    /**
+     * Checks whether a configuration has exactly one solution. The search
+     * stops as soon as it finds a second one.
+     *
+     * @param config A valid configuration; it is not modified
+     * @return true if there is exactly one solution
+     */
+    public boolean isUnique(MutableConfiguration config) {
+        return countSolutions(config, 2) == 1;
+    }
+
+    /**
+     * Iterates over the solutions of one search. The search only moves on
+     * when the next solution is asked for, and has its own counters, so
+     * several iterators can be used side by side.
+     */
+    public class SolutionIterator implements Iterator<Configuration> {
+
+        /** The search the solutions come from.*/
+        private final Search search;
+
+        /** The next solution, once it has been searched for.*/
+        private Configuration next;
+
+        /** Whether next holds the result of the latest step of the search.*/
+        private boolean ready;
+
+        /**
+         * Wraps a search that has not started yet.
+         *
+         * @param search The search
+         */
+        private SolutionIterator(Search search) {
+            this.search = search;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready) {
+                next = search.next();
+                ready = true;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Configuration next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            return next;
+        }
+
+        /**
+         * Returns the counters of this iterator's search so far.
+         *
+         * @return The counters
+         */
+        public SolverStats getStats() {
+            return search.stats;
+        }
+    }
+
+    /**
+     * The state of one in-place search: the configuration it walks and,
+     * for every level above it, how many options there were and how many
+     * have been tried. Finding a goal leaves the state where it is, so the
+     * search can carry on to the next solution.
+     */
+    private class Search {
+
+        /** The configuration being walked.*/
+        private final MutableConfiguration config;
+
+        /** Number of options at each level.*/
+        private int[] options = new int[64];
+
+        /** Number of options tried so far at each level.*/
+        private int[] tried = new int[64];
+
+        /** Number of decisions currently applied to the configuration.*/
+        private int depth;
+
+        /** Whether the configuration is a goal that has already been returned.*/
+        private boolean atGoal;
+
+        /** Whether the whole tree has been searched, or the stop flag was set.*/
+        private boolean done;
+
+        /** System.nanoTime() at which the progress listener is next due.*/
+        private long nextProgress;
+
+        /** System.nanoTime() at which the search gives up.*/
+        private long giveUp;
+
+        /** Whether the search has taken its first step, which starts its clock.*/
+        private boolean started;
+
+        /** The counters of this search.*/
+        private final SolverStats stats = new SolverStats();
+
+        /**
+         * Sets up a search, and a fresh set of counters for it. Nothing is
+         * searched, and the time limit does not start, until next().
+         *
+         * @param config The configuration to walk
+         */
+        Search(MutableConfiguration config) {
+            this.config = config;
+        }
+
+        /**
+         * Carries on searching until the next goal.
+         *
+         * @return A copy of the next solution config, or null once there
+         * are no more or the stop flag was set
+         */
+        Configuration next() {
+            if (done) {
+                return null;
+            }
+            if (!started) {
+                started = true;
+                stats.start();
+                long now = System.nanoTime();
+                nextProgress = progress == null ? Long.MAX_VALUE : now + progressMillis * 1000000L;
+                giveUp = timeLimit > 0 ? Math.min(deadline, now + timeLimit) : deadline;
+            }
+            if (atGoal) {
+                atGoal = false;
+                if (!backtrack()) {
+                    return null;
+                }
+            }
+            while (true) {
+                debugPrint("Current config", config);
+                stats.nodes++;
+                if (depth > stats.maxDepth) {
+                    stats.maxDepth = depth;
+                }
+                if ((stats.nodes & CLOCK_MASK) == 0) {
+                    long now = System.nanoTime();
+                    if (now > giveUp) {
+                        stats.timedOut = true;
+                        done = true;
+                        stats.finish();
+                        return null;
+                    }
+                    if (now > nextProgress) {
+                        progress.accept(stats);
+                        nextProgress = now + progressMillis * 1000000L;
+                    }
+                }
+                if (stop.get()) {
+                    stats.cancelled = true;
+                    done = true;
+                    stats.finish();
+                    return null;
+                }
+                if (config.isGoal()) {
+                    debugPrint("\tGoal config", config);
+                    config.goalReached();
+                    stats.solved();
+                    stats.finish();
+                    atGoal = true;
+                    return config.snapshot();
+                }
+                if (depth == options.length) {
+                    options = Arrays.copyOf(options, depth * 2);
+                    tried = Arrays.copyOf(tried, depth * 2);
+                }
+                options[depth] = config.choose();
+                tried[depth] = 0;
+                if (!advance()) {
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Backs up out of the current configuration and moves on to the
+         * next valid successor.
+         *
+         * @return false if the whole tree has been searched
+         */
+        private boolean backtrack() {
+            stats.backtracks++;
+            if (depth == 0) {
+                done = true;
+                stats.finish();
+                return false;
+            }
+            depth--;
+            config.undo();
+            return advance();
+        }
+
+        /**
+         * Applies the next valid option at the current level, backing up
+         * as many levels as needed to find one.
+         *
+         * @return false if the whole tree has been searched
+         */
+        private boolean advance() {
+            while (true) {
+                if (tried[depth] < options[depth]) {
+                    if (config.apply(tried[depth]++)) {
+                        debugPrint("\tValid successor", config);
+                        stats.valid++;
+                        depth++;
+                        return true;
+                    }
+                    debugPrint("\tInvalid successor", config);
+                    stats.invalid++;
+                    config.undo();
+                } else if (depth == 0) {
+                    stats.backtracks++;
+                    done = true;
+                    stats.finish();
+                    return false;
+                } else {
+                    stats.backtracks++;
+                    depth--;
+                    config.undo();
+                }
+            }
+        }
+
+        /**
+         * Undoes every decision, putting the configuration back in its
+         * starting state.
+         */
+        void unwind() {
+            while (depth > 0) {
+                depth--;
+                config.undo();
+            }
+        }
+    }
+
     /**
      * Find a goal configuration if it exists, and how to get there.
      *
@@ -0,0 +1,267 @@
+package backtracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves many safes in one run. The first argument is either a directory,
+ * whose files are all solved, or a manifest listing one safe file per
+ * line; relative paths in a manifest are taken from the manifest's own
+ * directory, and blank lines and lines starting with # are skipped.
+ * Every safe in a file is solved, if it holds more than one, and a file
+ * may also be a safe archive (see SafeArchive).
+ *
+ * The safes are solved on a fixed number of worker threads, one text
+ * file or archived safe per worker at a time. A line is printed for every safe as soon as it is
+ * done, giving its result (solved, unsolvable, timeout or error), how
+ * long it took and how many configurations were searched, followed by a
+ * summary once every safe is done. The exit status is 0 only if every
+ * safe was solved.
+ *
+ * Safes that are copies, rotations or reflections of one solved earlier
+ * in the run are answered from a SolutionCache instead of being solved
+ * again; their lines say cached.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class BatchSolver {
+
+    /** The possible outcomes for one safe.*/
+    public enum Status { SOLVED, UNSOLVABLE, TIMEOUT, ERROR }
+
+    /** How many safes may wait for a worker before submitting blocks.*/
+    private static final int BACKLOG_PER_WORKER = 4;
+
+    /** The number of safes that ended with each status.*/
+    private final int[] counts = new int[Status.values().length];
+
+    /** Total configurations searched over every safe.*/
+    private long nodes;
+
+    /** Total time spent solving, summed over every safe, in milliseconds.*/
+    private double busyMillis;
+
+    /** The safe that took longest, and how long it took.*/
+    private String slowest;
+    private double slowestMillis = -1;
+
+    /** How long one safe may take before it is given up on, or 0 for no limit.*/
+    private final long timeoutMillis;
+
+    /** Outcomes of the safes solved so far, shared by every worker.*/
+    private final SolutionCache cache = new SolutionCache(CACHE_CAPACITY);
+
+    /** How many safes the cache remembers.*/
+    private static final int CACHE_CAPACITY = 1 << 16;
+
+    /**
+     * Creates a batch solver.
+     *
+     * @param timeoutMillis How long one safe may take, or 0 for no limit
+     */
+    public BatchSolver(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Lists the safe files named by a directory or a manifest. An
+     * archive stands for itself.
+     *
+     * @param source A directory of safe files, a manifest file or an archive
+     * @return The safe files, in name or manifest order
+     * @throws IOException if the source cannot be read
+     */
+    public static List<File> listSafes(File source) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (SafeArchive.isArchive(source.getPath())) {
+            files.add(source);
+        } else if (source.isDirectory()) {
+            File[] entries = source.listFiles(File::isFile);
+            if (entries == null) {
+                throw new IOException("Cannot list " + source);
+            }
+            Arrays.sort(entries);
+            files.addAll(Arrays.asList(entries));
+        } else {
+            File base = source.getAbsoluteFile().getParentFile();
+            for (String line : Files.readAllLines(source.toPath())) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                File file = new File(line);
+                files.add(file.isAbsolute() ? file : new File(base, line));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Solves every safe on a fixed number of worker threads, printing a
+     * line for each as it finishes.
+     *
+     * @param files   The safe files
+     * @param threads The number of worker threads
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void solveAll(List<File> files, int threads) throws InterruptedException {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * BACKLOG_PER_WORKER), new ThreadPoolExecutor.CallerRunsPolicy());
+        for (File file : files) {
+            if (!SafeArchive.isArchive(file.getPath())) {
+                workers.execute(() -> solveFile(file));
+                continue;
+            }
+            SafeArchive archive;
+            try {
+                archive = new SafeArchive(file.getPath());
+            } catch (IOException | RuntimeException e) {
+                record(file.getPath(), Status.ERROR, 0, 0, "\t" + e.getMessage());
+                continue;
+            }
+            for (int i = 0; i < archive.size(); i++) {
+                int n = i;
+                workers.execute(() -> solveOne(file.getPath() + "#" + (n + 1), archive.getSafe(n)));
+            }
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Solves every safe in a file. A file holding more than one safe gets
+     * a line per safe, numbered from 1 after a #.
+     *
+     * @param file The safe file
+     */
+    private void solveFile(File file) {
+        long start = System.nanoTime();
+        List<char[][]> safes;
+        try {
+            safes = SafeParser.readAll(file.getPath());
+        } catch (IOException | RuntimeException e) {
+            record(file.getPath(), Status.ERROR, (System.nanoTime() - start) / 1e6, 0, "\t" + e.getMessage());
+            return;
+        }
+        for (int i = 0; i < safes.size(); i++) {
+            solveOne(safes.size() == 1 ? file.getPath() : file.getPath() + "#" + (i + 1), safes.get(i));
+        }
+    }
+
+    /**
+     * Solves one safe and records how it went.
+     *
+     * @param name The name to print for the safe
+     * @param grid The safe's grid
+     */
+    private void solveOne(String name, char[][] grid) {
+        Backtracker bt = new Backtracker(false);
+        bt.setTimeLimit(timeoutMillis);
+        long start = System.nanoTime();
+        Status status;
+        String detail = "";
+        try {
+            SafeBoard board = new SafeBoard(grid, grid[0].length, grid.length);
+            SafeConfig init = new SafeConfig(new SafeBoard(board));
+            char[][] cached = cache.get(board);
+            if (cached != null) {
+                status = cached == SolutionCache.UNSOLVABLE ? Status.UNSOLVABLE : Status.SOLVED;
+                detail = "\tcached";
+            } else {
+                init.setCellOrder(new MostConstrainedOrder());
+                Optional<Configuration> sol = init.propagate() ? bt.solveInPlace(init) : Optional.empty();
+                if (sol.isPresent()) {
+                    status = Status.SOLVED;
+                    cache.put(board, sol.get().getSafe());
+                } else if (bt.getStats().isTimedOut()) {
+                    status = Status.TIMEOUT;
+                } else {
+                    status = Status.UNSOLVABLE;
+                    cache.put(board, null);
+                }
+            }
+        } catch (RuntimeException e) {
+            status = Status.ERROR;
+            detail = "\t" + e;
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        record(name, status, millis, bt.getStats().getNodes(), detail);
+    }
+
+    /**
+     * Prints the line for one safe and adds it to the totals.
+     *
+     * @param name   The name of the safe
+     * @param status How it went
+     * @param millis How long it took
+     * @param n      How many configurations were searched
+     * @param detail Anything else to print, such as an error message
+     */
+    private synchronized void record(String name, Status status, double millis, long n, String detail) {
+        counts[status.ordinal()]++;
+        nodes += n;
+        busyMillis += millis;
+        if (millis > slowestMillis) {
+            slowestMillis = millis;
+            slowest = name;
+        }
+        System.out.printf("%s\t%s\t%.1f ms\t%d nodes%s%n", name,
+                status.name().toLowerCase(), millis, n, detail);
+    }
+
+    /**
+     * Returns the number of safes that ended with a status.
+     *
+     * @param status The status
+     * @return int
+     */
+    public synchronized int getCount(Status status) {
+        return counts[status.ordinal()];
+    }
+
+    /**
+     * Prints the totals.
+     *
+     * @param wallMillis How long the whole batch took
+     */
+    private synchronized void summarize(double wallMillis) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        System.out.printf("%d safes: %d solved, %d unsolvable, %d timeout, %d error%n", total,
+                getCount(Status.SOLVED), getCount(Status.UNSOLVABLE), getCount(Status.TIMEOUT), getCount(Status.ERROR));
+        System.out.printf("Wall time: %.3f seconds, solving time: %.3f seconds, %d nodes%n",
+                wallMillis / 1000.0, busyMillis / 1000.0, nodes);
+        if (slowest != null) {
+            System.out.printf("Slowest: %s (%.1f ms)%n", slowest, slowestMillis);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 3) {
+            System.out.println("Usage: java BatchSolver (directory | manifest) [threads [timeout-seconds]]");
+            System.exit(2);
+        }
+        List<File> files = listSafes(new File(args[0]));
+        int threads = args.length >= 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = args.length == 3 ? (long) Math.ceil(Double.parseDouble(args[2]) * 1000) : 0;
+
+        BatchSolver batch = new BatchSolver(timeoutMillis);
+        long start = System.nanoTime();
+        batch.solveAll(files, threads);
+        batch.summarize((System.nanoTime() - start) / 1e6);
+        boolean allSolved = batch.getCount(Status.UNSOLVABLE) == 0 && batch.getCount(Status.TIMEOUT) == 0
+                && batch.getCount(Status.ERROR) == 0;
+        System.exit(allSolved ? 0 : 1);
+    }
+}
@@ -0,0 +1,692 @@
+package backtracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A conflict-driven clause learning SAT solver, used to solve a safe
+ * through its SafeCnf as an alternative to the Backtracker.
+ *
+ * It works the way MiniSat does. Each clause watches two of its literals,
+ * so assigning a variable only looks at the clauses watching the literal
+ * it made false. When a clause has every literal false, the conflict is
+ * traced back through the clauses that forced each assignment to the
+ * first point of the current decision that they all pass through, and the
+ * clause that explains it is learnt, so the same mistake is never made
+ * again; the search then jumps back to the decision that clause first
+ * forces something at. Variables in recent conflicts are decided first,
+ * with the value they last had. The search starts over after a number of
+ * conflicts that follows the Luby sequence, keeping what it learnt, and
+ * from time to time half of the learnt clauses that link the most
+ * decision levels are thrown away.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class CdclSolver {
+
+    /** The results of a search.*/
+    public enum Result {SATISFIABLE, UNSATISFIABLE, UNKNOWN}
+
+    /** The number of conflicts in the first restart interval.*/
+    private static final int RESTART_BASE = 100;
+
+    /** How much the activity bump grows after each conflict.*/
+    private static final double ACTIVITY_DECAY = 1 / 0.95;
+
+    /** The number of conflicts before the first clean out of learnt clauses, and the gap between clean outs.*/
+    private static final int REDUCE_FIRST = 2000, REDUCE_STEP = 300;
+
+    /** The number of variables.*/
+    private final int variables;
+
+    /** The clauses, with the two watched literals first; null once deleted.*/
+    private final List<int[]> clauses = new ArrayList<>();
+
+    /** Whether each clause was learnt, and its number of distinct decision levels if so.*/
+    private final List<Integer> lbd = new ArrayList<>();
+
+    /** The clauses watching each literal.*/
+    private int[][] watches;
+
+    /** The number of clauses watching each literal.*/
+    private int[] watchCount;
+
+    /** The value of each variable: 1 true, -1 false, 0 unassigned.*/
+    private final byte[] value;
+
+    /** The value each variable last had, to try first next time.*/
+    private final boolean[] phase;
+
+    /** The decision level each variable was assigned at.*/
+    private final int[] level;
+
+    /** The clause that forced each variable, -1 for decisions.*/
+    private final int[] reason;
+
+    /** The literals assigned so far, in order.*/
+    private final int[] trail;
+
+    /** The number of assigned literals, and how many have been propagated.*/
+    private int trailSize, propagated;
+
+    /** Where each decision level starts on the trail.*/
+    private final int[] levelStart;
+
+    /** The current decision level.*/
+    private int decisionLevel;
+
+    /** How often each variable took part in recent conflicts, and the amount to add next.*/
+    private final double[] activity;
+    private double bump = 1;
+
+    /** The unassigned variables, ordered by activity.*/
+    private final int[] heap, heapIndex;
+    private int heapSize;
+
+    /** Scratch marks for conflict analysis.*/
+    private final boolean[] seen;
+
+    /** Set once an empty clause is added or a conflict is found before any decision.*/
+    private boolean contradiction;
+
+    /** The number of conflicts so far.*/
+    private long conflicts;
+
+    /** The number of learnt clauses still kept.*/
+    private int learnts;
+
+    /** How long, in nanoseconds, each call to solve() may run, or 0 for no limit.*/
+    private long timeLimit;
+
+    /**
+     * Creates a solver with no clauses.
+     *
+     * @param variables The number of variables, numbered from 1
+     */
+    public CdclSolver(int variables) {
+        this.variables = variables;
+        int literals = 2 * (variables + 1);
+        this.watches = new int[literals][];
+        this.watchCount = new int[literals];
+        for (int i = 0; i < literals; i++) {
+            watches[i] = new int[4];
+        }
+        this.value = new byte[variables + 1];
+        this.phase = new boolean[variables + 1];
+        this.level = new int[variables + 1];
+        this.reason = new int[variables + 1];
+        this.trail = new int[variables + 1];
+        this.levelStart = new int[variables + 1];
+        this.activity = new double[variables + 1];
+        this.heap = new int[variables + 1];
+        this.heapIndex = new int[variables + 1];
+        this.seen = new boolean[variables + 1];
+        Arrays.fill(heapIndex, -1);
+        for (int v = 1; v <= variables; v++) {
+            heapInsert(v);
+        }
+    }
+
+    /**
+     * Creates a solver for a formula.
+     *
+     * @param cnf the formula
+     */
+    public CdclSolver(SafeCnf cnf) {
+        this(cnf.getVariables());
+        for (int[] clause : cnf.getClauses()) {
+            addClause(clause);
+        }
+    }
+
+    /**
+     * Try find a solution, if one exists, for a given configuration.
+     *
+     * @param config A valid configuration; it is not modified
+     * @return A solution config, or empty if no solution
+     */
+    public static Optional<Configuration> solve(SafeConfig config) {
+        if (!config.getBoard().isValid()) {
+            return Optional.empty();
+        }
+        SafeCnf cnf = new SafeCnf(config.getBoard());
+        CdclSolver solver = new CdclSolver(cnf);
+        if (solver.solve() != Result.SATISFIABLE) {
+            return Optional.empty();
+        }
+        return Optional.of(cnf.solution(solver.getModel()));
+    }
+
+    /**
+     * Sets how long each call to solve() may take before it gives up,
+     * counted from when it starts.
+     *
+     * @param millis The time limit, in milliseconds, or 0 for none
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis * 1000000L;
+    }
+
+    /**
+     * Adds a clause. Clauses can only be added before solving.
+     *
+     * @param literals the clause, in DIMACS form
+     */
+    public void addClause(int... literals) {
+        if (contradiction) {
+            return;
+        }
+        int[] clause = new int[literals.length];
+        int n = 0;
+        for (int literal : literals) {
+            int lit = encode(literal);
+            boolean repeated = false;
+            for (int i = 0; i < n; i++) {
+                if (clause[i] == (lit ^ 1)) {
+                    return;
+                }
+                repeated |= clause[i] == lit;
+            }
+            if (litValue(lit) > 0) {
+                return;
+            }
+            if (!repeated && litValue(lit) == 0) {
+                clause[n++] = lit;
+            }
+        }
+        if (n == 0) {
+            contradiction = true;
+        } else if (n == 1) {
+            assign(clause[0], -1);
+            contradiction = propagate() >= 0;
+        } else {
+            attach(Arrays.copyOf(clause, n), 0);
+        }
+    }
+
+    /**
+     * Searches for an assignment that satisfies every clause.
+     *
+     * @return SATISFIABLE, UNSATISFIABLE, or UNKNOWN if the time limit
+     * ran out
+     */
+    public Result solve() {
+        if (contradiction) {
+            return Result.UNSATISFIABLE;
+        }
+        long deadline = timeLimit > 0 ? System.nanoTime() + timeLimit : Long.MAX_VALUE;
+        long reduceGap = REDUCE_FIRST;
+        long nextReduce = conflicts + reduceGap;
+        int restarts = 0;
+        long nextRestart = conflicts + RESTART_BASE * luby(restarts);
+        while (true) {
+            int conflict = propagate();
+            if (conflict >= 0) {
+                conflicts++;
+                if (decisionLevel == 0) {
+                    contradiction = true;
+                    return Result.UNSATISFIABLE;
+                }
+                int[] learnt = analyze(conflict);
+                backtrack(level[learnt.length > 1 ? learnt[1] >>> 1 : 0]);
+                if (learnt.length == 1) {
+                    assign(learnt[0], -1);
+                } else {
+                    int index = attach(learnt, levels(learnt));
+                    learnts++;
+                    assign(learnt[0], index);
+                }
+                bump *= ACTIVITY_DECAY;
+                if ((conflicts & 255) == 0 && System.nanoTime() > deadline) {
+                    backtrack(0);
+                    return Result.UNKNOWN;
+                }
+            } else {
+                if (conflicts >= nextRestart) {
+                    restarts++;
+                    nextRestart = conflicts + RESTART_BASE * luby(restarts);
+                    backtrack(0);
+                }
+                if (conflicts >= nextReduce) {
+                    reduceGap += REDUCE_STEP;
+                    nextReduce = conflicts + reduceGap;
+                    reduce();
+                }
+                int next = pickBranch();
+                if (next == 0) {
+                    return Result.SATISFIABLE;
+                }
+                levelStart[decisionLevel++] = trailSize;
+                assign(2 * next + (phase[next] ? 0 : 1), -1);
+            }
+        }
+    }
+
+    /**
+     * Returns the value of each variable after solve() found the formula
+     * satisfiable.
+     *
+     * @return the values, indexed from 1
+     */
+    public boolean[] getModel() {
+        boolean[] model = new boolean[variables + 1];
+        for (int v = 1; v <= variables; v++) {
+            model[v] = value[v] > 0;
+        }
+        return model;
+    }
+
+    /**
+     * Returns the number of conflicts so far.
+     * @return long
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Turns a DIMACS literal into an index: 2v for v, 2v + 1 for -v.
+     *
+     * @param literal the literal
+     * @return int
+     */
+    private static int encode(int literal) {
+        return literal > 0 ? 2 * literal : -2 * literal + 1;
+    }
+
+    /**
+     * Returns the value of a literal: 1 true, -1 false, 0 unassigned.
+     *
+     * @param lit the literal's index
+     * @return int
+     */
+    private int litValue(int lit) {
+        int v = value[lit >>> 1];
+        return (lit & 1) == 0 ? v : -v;
+    }
+
+    /**
+     * Makes a literal true.
+     *
+     * @param lit    the literal's index
+     * @param clause the clause that forced it, or -1 for a decision
+     */
+    private void assign(int lit, int clause) {
+        int v = lit >>> 1;
+        value[v] = (byte) ((lit & 1) == 0 ? 1 : -1);
+        level[v] = decisionLevel;
+        reason[v] = clause;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Stores a clause and has it watch its first two literals.
+     *
+     * @param clause the clause, with at least two literals
+     * @param levels its number of distinct decision levels, 0 if not learnt
+     * @return the clause's index
+     */
+    private int attach(int[] clause, int levels) {
+        int index = clauses.size();
+        clauses.add(clause);
+        lbd.add(levels);
+        watch(clause[0], index);
+        watch(clause[1], index);
+        return index;
+    }
+
+    /**
+     * Adds a clause to a literal's watch list.
+     *
+     * @param lit   the literal's index
+     * @param index the clause's index
+     */
+    private void watch(int lit, int index) {
+        if (watchCount[lit] == watches[lit].length) {
+            watches[lit] = Arrays.copyOf(watches[lit], watchCount[lit] * 2);
+        }
+        watches[lit][watchCount[lit]++] = index;
+    }
+
+    /**
+     * Follows every assignment not yet propagated through the clauses
+     * watching the literal it made false.
+     *
+     * @return the index of a clause with every literal false, or -1
+     */
+    private int propagate() {
+        while (propagated < trailSize) {
+            int falseLit = trail[propagated++] ^ 1;
+            int[] list = watches[falseLit];
+            int n = watchCount[falseLit];
+            int kept = 0;
+            int i = 0;
+            while (i < n) {
+                int index = list[i++];
+                int[] clause = clauses.get(index);
+                if (clause == null) {
+                    continue;
+                }
+                if (clause[0] == falseLit) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLit;
+                }
+                if (litValue(clause[0]) > 0) {
+                    list[kept++] = index;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < clause.length; k++) {
+                    if (litValue(clause[k]) >= 0) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLit;
+                        watch(clause[1], index);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                list[kept++] = index;
+                if (litValue(clause[0]) < 0) {
+                    while (i < n) {
+                        list[kept++] = list[i++];
+                    }
+                    watchCount[falseLit] = kept;
+                    propagated = trailSize;
+                    return index;
+                }
+                assign(clause[0], index);
+            }
+            watchCount[falseLit] = kept;
+        }
+        return -1;
+    }
+
+    /**
+     * Works out the clause to learn from a conflict: the literals of
+     * earlier levels that, with the first literal of the current level
+     * every path to the conflict goes through, led to it. The asserting
+     * literal comes first and a literal of the highest other level second.
+     *
+     * @param conflict the index of the clause with every literal false
+     * @return the clause
+     */
+    private int[] analyze(int conflict) {
+        List<Integer> learnt = new ArrayList<>();
+        learnt.add(0);
+        int open = 0;
+        int lit = -1;
+        int position = trailSize - 1;
+        int[] clause = clauses.get(conflict);
+        do {
+            if (lbd.get(conflict) > 0) {
+                // keep learnt clauses that keep coming up
+                lbd.set(conflict, Math.max(1, Math.min(lbd.get(conflict), levels(clause))));
+            }
+            for (int k = lit < 0 ? 0 : 1; k < clause.length; k++) {
+                int q = clause[k];
+                int v = q >>> 1;
+                if (!seen[v] && level[v] > 0) {
+                    seen[v] = true;
+                    bumpActivity(v);
+                    if (level[v] == decisionLevel) {
+                        open++;
+                    } else {
+                        learnt.add(q);
+                    }
+                }
+            }
+            while (!seen[trail[position] >>> 1]) {
+                position--;
+            }
+            lit = trail[position--];
+            seen[lit >>> 1] = false;
+            conflict = reason[lit >>> 1];
+            clause = conflict >= 0 ? clauses.get(conflict) : null;
+            open--;
+        } while (open > 0);
+        learnt.set(0, lit ^ 1);
+
+        // drop the literals implied by the others
+        int[] result = new int[learnt.size()];
+        int n = 0;
+        result[n++] = learnt.get(0);
+        for (int k = 1; k < learnt.size(); k++) {
+            int q = learnt.get(k);
+            if (!redundant(q)) {
+                result[n++] = q;
+            }
+        }
+        for (int k = 1; k < learnt.size(); k++) {
+            seen[learnt.get(k) >>> 1] = false;
+        }
+        result = Arrays.copyOf(result, n);
+        int highest = 1;
+        for (int k = 2; k < n; k++) {
+            if (level[result[k] >>> 1] > level[result[highest] >>> 1]) {
+                highest = k;
+            }
+        }
+        if (n > 1) {
+            int swap = result[1];
+            result[1] = result[highest];
+            result[highest] = swap;
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if a literal of a learnt clause is false only because
+     * other literals of the clause are: every literal of the clause that
+     * forced it is already in the learnt clause or fixed for good.
+     *
+     * @param q the literal
+     * @return boolean
+     */
+    private boolean redundant(int q) {
+        int because = reason[q >>> 1];
+        if (because < 0) {
+            return false;
+        }
+        for (int other : clauses.get(because)) {
+            int v = other >>> 1;
+            if (v != q >>> 1 && !seen[v] && level[v] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of distinct decision levels among a clause's
+     * literals.
+     *
+     * @param clause the clause
+     * @return int
+     */
+    private int levels(int[] clause) {
+        int count = 0;
+        for (int i = 0; i < clause.length; i++) {
+            int l = level[clause[i] >>> 1];
+            boolean repeat = false;
+            for (int j = 0; j < i && !repeat; j++) {
+                repeat = level[clause[j] >>> 1] == l;
+            }
+            if (!repeat) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Undoes every assignment made after a decision level.
+     *
+     * @param target the level to go back to
+     */
+    private void backtrack(int target) {
+        if (decisionLevel <= target) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= levelStart[target]; i--) {
+            int v = trail[i] >>> 1;
+            phase[v] = value[v] > 0;
+            value[v] = 0;
+            reason[v] = -1;
+            if (heapIndex[v] < 0) {
+                heapInsert(v);
+            }
+        }
+        trailSize = levelStart[target];
+        propagated = trailSize;
+        decisionLevel = target;
+    }
+
+    /**
+     * Returns the most active unassigned variable.
+     *
+     * @return the variable, or 0 if every variable is assigned
+     */
+    private int pickBranch() {
+        while (heapSize > 0) {
+            int v = heapRemoveTop();
+            if (value[v] == 0) {
+                return v;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Throws away half of the learnt clauses, the ones linking the most
+     * decision levels, except those forcing a current assignment and those
+     * linking only two.
+     */
+    private void reduce() {
+        List<Integer> candidates = new ArrayList<>();
+        for (int index = 0; index < clauses.size(); index++) {
+            int[] clause = clauses.get(index);
+            if (clause != null && lbd.get(index) > 2 && !(value[clause[0] >>> 1] != 0
+                    && reason[clause[0] >>> 1] == index)) {
+                candidates.add(index);
+            }
+        }
+        candidates.sort((a, b) -> lbd.get(b) - lbd.get(a));
+        for (int i = 0; i < candidates.size() / 2; i++) {
+            // watch lists drop deleted clauses as they come across them
+            clauses.set(candidates.get(i), null);
+            learnts--;
+        }
+    }
+
+    /**
+     * Makes a variable more likely to be decided next.
+     *
+     * @param v the variable
+     */
+    private void bumpActivity(int v) {
+        activity[v] += bump;
+        if (activity[v] > 1e100) {
+            for (int u = 1; u <= variables; u++) {
+                activity[u] *= 1e-100;
+            }
+            bump *= 1e-100;
+        }
+        if (heapIndex[v] >= 0) {
+            heapUp(heapIndex[v]);
+        }
+    }
+
+    /**
+     * Returns the ith number of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     *
+     * @param i the position, from 0
+     * @return long
+     */
+    private static long luby(int i) {
+        int size = 1;
+        int sequence = 0;
+        while (size < i + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            sequence--;
+            i = i % size;
+        }
+        return 1L << sequence;
+    }
+
+    /**
+     * Adds a variable to the activity heap.
+     *
+     * @param v the variable
+     */
+    private void heapInsert(int v) {
+        heap[heapSize] = v;
+        heapIndex[v] = heapSize;
+        heapUp(heapSize++);
+    }
+
+    /**
+     * Removes the most active variable from the activity heap.
+     *
+     * @return the variable
+     */
+    private int heapRemoveTop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Moves a heap entry up until its parent is at least as active.
+     *
+     * @param i the entry's position
+     */
+    private void heapUp(int i) {
+        int v = heap[i];
+        while (i > 0 && activity[heap[(i - 1) >> 1]] < activity[v]) {
+            heap[i] = heap[(i - 1) >> 1];
+            heapIndex[heap[i]] = i;
+            i = (i - 1) >> 1;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    /**
+     * Moves a heap entry down until its children are no more active.
+     *
+     * @param i the entry's position
+     */
+    private void heapDown(int i) {
+        int v = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[v]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+}
@@ -0,0 +1,21 @@
+package backtracking;
+
+/**
+ * A strategy for picking which cell of a safe the in-place search decides
+ * next. Every implementation must only return cells that are still free,
+ * and must return -1 only when no free cell can help reach the goal.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public interface CellOrder {
+    /**
+     * Picks the next cell to decide.
+     *
+     * @param board The board being searched
+     * @param from  The cell after the one decided at the previous level,
+     *              or 0 at the top of the search
+     * @return A free cell, or -1 if there is nothing left to decide
+     */
+    public int next(SafeBoard board, int from);
+}
@@ -0,0 +1,400 @@
+package backtracking;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Solves a safe with Algorithm X on a Dancing Links matrix, as an
+ * alternative to the Backtracker.
+ *
+ * Every cell that could still hold a laser is a row of the matrix. The
+ * columns are of three kinds:
+ * <ul>
+ *     <li>one for every dark cell, listing the rows that would light it;
+ *     it must end up covered at least once, since a cell may be lit both
+ *     along its row and along its column</li>
+ *     <li>one for every beam segment, which may be covered at most once,
+ *     as two lasers in the same segment would see each other</li>
+ *     <li>one for every numbered pillar still missing lasers, listing
+ *     its free neighbours; it must be covered exactly that many times</li>
+ * </ul>
+ * The search always branches on the dark cell or pillar column with the
+ * fewest rows to spare. Choosing a row unlinks the other rows of its
+ * segments and, once a pillar is full, the other rows next to it. After
+ * a row has been tried it is unlinked for the rest of its siblings, so no
+ * set of lasers is looked at twice. Every change goes on an undo log, so
+ * backing up is a matter of replaying the log backwards.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class DancingLinksSolver {
+
+    /** Column kinds.*/
+    private static final int CELL = 0, SEGMENT = 1, PILLAR = 2;
+
+    /** Undo log entry kinds.*/
+    private static final int HIDE = 0, DEACTIVATE = 1, COUNT = 2;
+
+    /** Node links: left, right, up, down, and the column header of each node.*/
+    private int[] L, R, U, D, col;
+
+    /** The row (the cell, for row nodes) each node belongs to.*/
+    private int[] row;
+
+    /** Number of rows still linked into each column.*/
+    private int[] len;
+
+    /** Column kind, and how many more rows a pillar column needs.*/
+    private int[] kind, need;
+
+    /** First node of each row, or -1 for cells that are not rows.*/
+    private int[] rowStart;
+
+    /** Node 0 is the root of the list of active CELL and PILLAR columns.*/
+    private static final int ROOT = 0;
+
+    /** Number of nodes used so far.*/
+    private int nodes;
+
+    /** The undo log, encoded as (index << 2) | entry kind.*/
+    private int[] log;
+
+    /** Number of entries on the undo log.*/
+    private int logSize;
+
+    /** The rows chosen so far.*/
+    private int[] chosen;
+
+    /** Number of rows chosen so far.*/
+    private int chosenSize;
+
+    /**
+     * Try find a solution, if one exists, for a given configuration.
+     *
+     * @param config A valid configuration; it is not modified
+     * @return A solution config, or empty if no solution
+     */
+    public Optional<Configuration> solve(SafeConfig config) {
+        SafeBoard board = new SafeBoard(config.getBoard());
+        if (!board.isValid()) {
+            return Optional.empty();
+        }
+        build(board);
+        if (!search()) {
+            return Optional.empty();
+        }
+        for (int i = 0; i < chosenSize; i++) {
+            board.placeLaser(chosen[i]);
+        }
+        return Optional.of(new SafeConfig(board));
+    }
+
+    /**
+     * Builds the matrix for a board.
+     *
+     * @param board the board
+     */
+    private void build(SafeBoard board) {
+        int size = board.size();
+        int colnum = board.getColnum();
+        int capacity = 1 + 3 * size;
+        L = new int[capacity];
+        R = new int[capacity];
+        U = new int[capacity];
+        D = new int[capacity];
+        col = new int[capacity];
+        row = new int[capacity];
+        len = new int[capacity];
+        kind = new int[capacity];
+        need = new int[capacity];
+        nodes = 1;
+        L[ROOT] = R[ROOT] = ROOT;
+
+        // column headers: one per dark cell and numbered pillar, and one per
+        // row and column segment, found through its first cell
+        int[] cellCol = new int[size];
+        int[] pillarCol = new int[size];
+        int[] rowSegCol = new int[size];
+        int[] colSegCol = new int[size];
+        Arrays.fill(cellCol, -1);
+        Arrays.fill(pillarCol, -1);
+        Arrays.fill(rowSegCol, -1);
+        Arrays.fill(colSegCol, -1);
+        for (int cell = 0; cell < size; cell++) {
+            if (board.isDark(cell)) {
+                cellCol[cell] = header(CELL, 1, true);
+            } else if (board.getNeed(cell) > board.getAdjacent(cell)) {
+                pillarCol[cell] = header(PILLAR, board.getNeed(cell) - board.getAdjacent(cell), true);
+            }
+        }
+        for (int cell = 0; cell < size; cell++) {
+            if (board.isFree(cell)) {
+                if (rowSegCol[board.getLeft(cell)] < 0) {
+                    rowSegCol[board.getLeft(cell)] = header(SEGMENT, 1, false);
+                }
+                if (colSegCol[board.getTop(cell)] < 0) {
+                    colSegCol[board.getTop(cell)] = header(SEGMENT, 1, false);
+                }
+            }
+        }
+
+        // one row per free cell that is not next to a pillar that is already full
+        rowStart = new int[size];
+        Arrays.fill(rowStart, -1);
+        int[] around = new int[4];
+        for (int cell = 0; cell < size; cell++) {
+            if (!board.isFree(cell)) {
+                continue;
+            }
+            int n = board.neighbors(cell, around);
+            boolean allowed = true;
+            for (int i = 0; i < n; i++) {
+                if (board.getNeed(around[i]) >= 0 && pillarCol[around[i]] < 0) {
+                    allowed = false;
+                }
+            }
+            if (!allowed) {
+                continue;
+            }
+            int first = -1;
+            first = link(first, rowSegCol[board.getLeft(cell)], cell);
+            first = link(first, colSegCol[board.getTop(cell)], cell);
+            for (int i = 0; i < n; i++) {
+                if (pillarCol[around[i]] >= 0) {
+                    first = link(first, pillarCol[around[i]], cell);
+                }
+            }
+            for (int i = board.getLeft(cell); i <= board.getRight(cell); i++) {
+                if (cellCol[i] >= 0) {
+                    first = link(first, cellCol[i], cell);
+                }
+            }
+            for (int i = board.getTop(cell); i <= board.getBottom(cell); i += colnum) {
+                if (i != cell && cellCol[i] >= 0) {
+                    first = link(first, cellCol[i], cell);
+                }
+            }
+            rowStart[cell] = first;
+        }
+        log = new int[nodes * 2];
+        logSize = 0;
+        chosen = new int[size];
+        chosenSize = 0;
+    }
+
+    /**
+     * Adds a column header.
+     *
+     * @param type    the column kind
+     * @param count   how many times the column must be covered
+     * @param primary whether the column goes on the active list
+     * @return the header node
+     */
+    private int header(int type, int count, boolean primary) {
+        int h = newNode();
+        U[h] = D[h] = h;
+        col[h] = h;
+        row[h] = -1;
+        kind[h] = type;
+        need[h] = count;
+        if (primary) {
+            L[h] = L[ROOT];
+            R[h] = ROOT;
+            R[L[ROOT]] = h;
+            L[ROOT] = h;
+        } else {
+            L[h] = R[h] = h;
+        }
+        return h;
+    }
+
+    /**
+     * Adds a node for a row to the bottom of a column and to the end of
+     * the row.
+     *
+     * @param first  the first node of the row so far, or -1
+     * @param header the column
+     * @param cell   the row
+     * @return the first node of the row
+     */
+    private int link(int first, int header, int cell) {
+        int x = newNode();
+        col[x] = header;
+        row[x] = cell;
+        U[x] = U[header];
+        D[x] = header;
+        D[U[header]] = x;
+        U[header] = x;
+        len[header]++;
+        if (first < 0) {
+            L[x] = R[x] = x;
+            return x;
+        }
+        L[x] = L[first];
+        R[x] = first;
+        R[L[first]] = x;
+        L[first] = x;
+        return first;
+    }
+
+    /**
+     * Takes a node from the pool, growing the arrays if needed.
+     *
+     * @return the node
+     */
+    private int newNode() {
+        if (nodes == L.length) {
+            int capacity = nodes * 2;
+            L = Arrays.copyOf(L, capacity);
+            R = Arrays.copyOf(R, capacity);
+            U = Arrays.copyOf(U, capacity);
+            D = Arrays.copyOf(D, capacity);
+            col = Arrays.copyOf(col, capacity);
+            row = Arrays.copyOf(row, capacity);
+            len = Arrays.copyOf(len, capacity);
+            kind = Arrays.copyOf(kind, capacity);
+            need = Arrays.copyOf(need, capacity);
+        }
+        return nodes++;
+    }
+
+    /**
+     * Algorithm X: picks the active column with the fewest rows to spare
+     * and tries each of its rows in turn.
+     *
+     * @return true if a solution was found; the chosen rows are left in chosen
+     */
+    private boolean search() {
+        if (R[ROOT] == ROOT) {
+            return true;
+        }
+        int best = -1;
+        int slack = Integer.MAX_VALUE;
+        for (int h = R[ROOT]; h != ROOT; h = R[h]) {
+            int s = len[h] - need[h];
+            if (s < slack) {
+                slack = s;
+                best = h;
+                if (s <= 0) {
+                    break;
+                }
+            }
+        }
+        if (slack < 0) {
+            return false;
+        }
+        int start = logSize;
+        for (int x = D[best]; x != best; x = D[x]) {
+            int mark = logSize;
+            chosen[chosenSize++] = row[x];
+            select(x);
+            if (search()) {
+                return true;
+            }
+            chosenSize--;
+            undoTo(mark);
+            hide(x);
+        }
+        undoTo(start);
+        return false;
+    }
+
+    /**
+     * Chooses the row of a node: unlinks the row itself, marks the dark
+     * cells it lights as covered, unlinks the other rows of its segments
+     * and counts it towards its pillars.
+     *
+     * @param node any node of the row
+     */
+    private void select(int node) {
+        hide(node);
+        int x = node;
+        do {
+            int h = col[x];
+            if (kind[h] == CELL) {
+                deactivate(h);
+            } else if (kind[h] == SEGMENT) {
+                hideColumn(h);
+            } else {
+                need[h]--;
+                log[logSize++] = (h << 2) | COUNT;
+                if (need[h] == 0) {
+                    deactivate(h);
+                    hideColumn(h);
+                }
+            }
+            x = R[x];
+        } while (x != node);
+    }
+
+    /**
+     * Unlinks every row still linked into a column.
+     *
+     * @param h the column header
+     */
+    private void hideColumn(int h) {
+        for (int y = D[h]; y != h; y = D[y]) {
+            hide(y);
+        }
+    }
+
+    /**
+     * Unlinks a row from every column it is in.
+     *
+     * @param node any node of the row
+     */
+    private void hide(int node) {
+        int x = node;
+        do {
+            D[U[x]] = D[x];
+            U[D[x]] = U[x];
+            len[col[x]]--;
+            x = R[x];
+        } while (x != node);
+        log[logSize++] = (node << 2) | HIDE;
+    }
+
+    /**
+     * Takes a column off the active list.
+     *
+     * @param h the column header
+     */
+    private void deactivate(int h) {
+        if (R[L[h]] == h) {
+            R[L[h]] = R[h];
+            L[R[h]] = L[h];
+            log[logSize++] = (h << 2) | DEACTIVATE;
+        }
+    }
+
+    /**
+     * Replays the undo log backwards until it is down to the given size.
+     *
+     * @param size the log size to go back to
+     */
+    private void undoTo(int size) {
+        while (logSize > size) {
+            int entry = log[--logSize];
+            int n = entry >>> 2;
+            switch (entry & 3) {
+                case HIDE:
+                    int x = n;
+                    do {
+                        x = L[x];
+                        D[U[x]] = x;
+                        U[D[x]] = x;
+                        len[col[x]]++;
+                    } while (x != n);
+                    break;
+                case DEACTIVATE:
+                    R[L[n]] = n;
+                    L[R[n]] = n;
+                    break;
+                default:
+                    need[n]++;
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package backtracking;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Solves a safe one cell at a time by dynamic programming over frontiers,
+ * as an alternative to the Backtracker for safes that are long and
+ * narrow.
+ *
+ * The safe is swept along its long side, so a sweep row runs across its
+ * short side; a safe with more columns than rows is swept column by
+ * column. After each cell, everything the rest of the safe needs to know
+ * about the cells so far fits in a small frontier state:
+ * <ul>
+ *     <li>for each sweep column, whether its last cell is a laser, whether
+ *     its segment already has a beam coming down, or whether a dark cell
+ *     in it is waiting for a laser further down</li>
+ *     <li>for each sweep column, how many more lasers a numbered pillar as
+ *     its last cell still needs from the cells to its right and below</li>
+ *     <li>whether the current row segment has a laser, and which of its
+ *     cells are still dark with nothing coming down their column</li>
+ * </ul>
+ * A row segment that ends without a laser passes its dark cells on to
+ * their columns. Each layer of the sweep keeps only the distinct states
+ * it reaches, however many ways there are of reaching them, so for a
+ * fixed width the work grows with the length of the safe rather than
+ * exponentially with it. The state takes 4 bits per sweep column for
+ * what its last cell tells the cell below and its pillar count, 1 more
+ * per sweep column for the row segment's dark cells, and 1 for the row
+ * segment's laser, 5 * width + 1 bits in all, which limits the short side
+ * to MAX_WIDTH cells.
+ *
+ * Every state remembers which state of the layer before it came from, so
+ * a solution is read back from the last layer once the sweep is done.
+ * Keeping that for every layer would take memory for every state of
+ * every cell, so only the states of one layer in about the square root of
+ * the number of cells are kept as checkpoints. The solution is read back
+ * a stretch at a time, sweeping each stretch again from its checkpoint to
+ * find where its states came from. That sweeps the safe about twice, in
+ * memory for the states of about twice the square root of the number of
+ * cells layers.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class FrontierSolver {
+
+    /** The longest the short side of a safe can be.*/
+    public static final int MAX_WIDTH = 12;
+
+    /** What a sweep column's last cell tells the cell below it.*/
+    private static final int NONE = 0, BEAM = 1, NEED = 2, LASER = 3;
+
+    /** What each cell may be, in sweep order.*/
+    private static final byte FREE = 0, FORCED_LASER = 1, FORCED_EMPTY = 2, PILLAR = 3;
+
+    /** Marks a transition that breaks a rule.*/
+    private static final long DEAD = -1;
+
+    /** The length of a sweep row, and the number of sweep rows.*/
+    private int width, length;
+
+    /** Whether the safe is swept column by column.*/
+    private boolean transposed;
+
+    /** What each cell may be, in sweep order.*/
+    private byte[] kind;
+
+    /** The number of lasers each numbered pillar needs, -1 for every other cell, in sweep order.*/
+    private int[] need;
+
+    /** The state the sweep starts from.*/
+    private static final long START = 0;
+
+    /** The largest number of states in one layer during the last solve.*/
+    private int peak;
+
+    /**
+     * Returns true if a safe is narrow enough for this solver. The memory
+     * it needs grows with the number of states in a layer, which grows
+     * quickly with the short side: a safe 8 cells wide has a few thousand,
+     * so one 3000 cells long needs a few megabytes, but a safe 12 cells
+     * wide has a few hundred thousand, so one 500 cells long needs a few
+     * hundred megabytes.
+     *
+     * @param board the safe
+     * @return boolean
+     */
+    public static boolean fits(SafeBoard board) {
+        return Math.min(board.getRownum(), board.getColnum()) <= MAX_WIDTH;
+    }
+
+    /**
+     * Try find a solution, if one exists, for a given configuration. The
+     * lasers already on the board and the cells decided to stay empty are
+     * kept.
+     *
+     * @param config A valid configuration, of a safe that fits(); it is
+     *               not modified
+     * @return A solution config, or empty if no solution
+     */
+    public Optional<Configuration> solve(SafeConfig config) {
+        SafeBoard board = new SafeBoard(config.getBoard());
+        if (!fits(board)) {
+            throw new IllegalArgumentException("safe is wider than " + MAX_WIDTH + " cells both ways");
+        }
+        if (!board.isValid()) {
+            return Optional.empty();
+        }
+        build(board);
+        int cells = width * length;
+        int stride = (int) Math.ceil(Math.sqrt(cells));
+        long[][] checkpoints = new long[(cells + stride - 1) / stride][];
+        int[][] parents = new int[stride][];
+        Layer layer = new Layer(1);
+        layer.add(START);
+        peak = 1;
+        for (int pos = 0; pos < cells; pos++) {
+            if (pos % stride == 0) {
+                checkpoints[pos / stride] = layer.states();
+            }
+            layer = sweep(layer, pos);
+            if (layer.size() == 0) {
+                return Optional.empty();
+            }
+            parents[pos % stride] = layer.parents();
+            peak = Math.max(peak, layer.size());
+        }
+
+        for (int i = 0; i < layer.size(); i++) {
+            if (isFinished(layer.get(i))) {
+                // follow the states back to the start, placing the lasers on the way; the last stretch's parents
+                // are left over from the sweep, and each stretch before it is swept again from its checkpoint
+                int index = i;
+                for (int c = checkpoints.length - 1; c >= 0; c--) {
+                    int first = c * stride;
+                    int end = Math.min(cells, first + stride);
+                    if (c < checkpoints.length - 1) {
+                        Layer again = new Layer(checkpoints[c]);
+                        for (int pos = first; pos < end; pos++) {
+                            again = sweep(again, pos);
+                            parents[pos - first] = again.parents();
+                        }
+                    }
+                    for (int pos = end - 1; pos >= first; pos--) {
+                        int from = parents[pos - first][index];
+                        int cell = cell(pos);
+                        if ((from & 1) != 0 && !board.isLaser(cell)) {
+                            board.placeLaser(cell);
+                        }
+                        index = from >>> 1;
+                    }
+                }
+                return Optional.of(new SafeConfig(board));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Decides a cell for every state of a layer.
+     *
+     * @param layer the states before the cell
+     * @param pos   the cell's position in the sweep
+     * @return the distinct states after it
+     */
+    private Layer sweep(Layer layer, int pos) {
+        Layer next = new Layer(layer.size() * 2);
+        for (int i = 0; i < layer.size(); i++) {
+            long state = layer.get(i);
+            if (kind[pos] != FORCED_LASER) {
+                next.add(step(state, pos, false), i << 1);
+            }
+            if (kind[pos] == FREE || kind[pos] == FORCED_LASER) {
+                next.add(step(state, pos, true), i << 1 | 1);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Returns the largest number of states in one layer during the last
+     * solve.
+     * @return int
+     */
+    public int getPeak() {
+        return peak;
+    }
+
+    /**
+     * Works out which way to sweep a board, and what each cell may be.
+     *
+     * @param board the board
+     */
+    private void build(SafeBoard board) {
+        transposed = board.getColnum() > board.getRownum();
+        width = transposed ? board.getRownum() : board.getColnum();
+        length = transposed ? board.getColnum() : board.getRownum();
+        kind = new byte[width * length];
+        need = new int[width * length];
+        for (int pos = 0; pos < kind.length; pos++) {
+            int cell = cell(pos);
+            need[pos] = board.getNeed(cell);
+            if (board.isPillar(cell)) {
+                kind[pos] = PILLAR;
+            } else if (board.isLaser(cell)) {
+                kind[pos] = FORCED_LASER;
+            } else if (board.isDecided(cell)) {
+                kind[pos] = FORCED_EMPTY;
+            } else {
+                kind[pos] = FREE;
+            }
+        }
+    }
+
+    /**
+     * Returns the board cell at a position in the sweep.
+     *
+     * @param pos the position, sweep row * width + sweep column
+     * @return the cell, row * colnum + col
+     */
+    private int cell(int pos) {
+        return transposed ? (pos % width) * length + pos / width : pos;
+    }
+
+    /**
+     * Returns true if a position holds a numbered pillar.
+     *
+     * @param pos the position
+     * @return boolean
+     */
+    private boolean isNumbered(int pos) {
+        return need[pos] >= 0;
+    }
+
+    /**
+     * Returns how many of the cells right of and below a position could
+     * hold a laser.
+     *
+     * @param pos   the position
+     * @param right whether to count the cell to the right
+     * @return int
+     */
+    private int open(int pos, boolean right) {
+        int n = 0;
+        if (right && pos % width < width - 1 && kind[pos + 1] != PILLAR) {
+            n++;
+        }
+        if (pos + width < kind.length && kind[pos + width] != PILLAR) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Works out the state after deciding a cell.
+     *
+     * @param state the state before the cell, or DEAD
+     * @param pos   the cell's position in the sweep
+     * @param laser whether the cell gets a laser
+     * @return the new state, or DEAD if a rule is broken
+     */
+    private long step(long state, int pos, boolean laser) {
+        if (state == DEAD) {
+            return DEAD;
+        }
+        int w = pos % width;
+        int column = column(state, w);
+        int pend = pend(state, w);
+        if (pos >= width && isNumbered(pos - width) && pend != (laser ? 1 : 0)) {
+            // the pillar above has had its last chance
+            return DEAD;
+        }
+        boolean rowLaser = (state >>> (5 * width) & 1) != 0;
+        long dark = state >>> (4 * width) & ((1L << width) - 1);
+        if (w > 0 && isNumbered(pos - 1)) {
+            int left = pend(state, w - 1) - (laser ? 1 : 0);
+            if (left < 0 || left > open(pos - 1, false)) {
+                return DEAD;
+            }
+            state = withPend(state, w - 1, left);
+        }
+
+        if (kind[pos] == PILLAR) {
+            if (column == NEED) {
+                return DEAD;
+            }
+            state = closeRow(state, dark);
+            rowLaser = false;
+            dark = 0;
+            int rest = 0;
+            if (isNumbered(pos)) {
+                rest = need[pos] - (column == LASER ? 1 : 0) - (w > 0 && column(state, w - 1) == LASER ? 1 : 0);
+                if (rest < 0 || rest > open(pos, true)) {
+                    return DEAD;
+                }
+            }
+            state = withColumn(state, w, NONE);
+            state = withPend(state, w, rest);
+        } else if (laser) {
+            if (rowLaser || column == BEAM || column == LASER) {
+                return DEAD;
+            }
+            rowLaser = true;
+            dark = 0;
+            state = withColumn(withPend(state, w, 0), w, LASER);
+        } else {
+            if (column == LASER) {
+                column = BEAM;
+            }
+            if (!rowLaser && column == NONE) {
+                dark |= 1L << w;
+            }
+            state = withColumn(withPend(state, w, 0), w, column);
+        }
+
+        if (w == width - 1) {
+            state = closeRow(state, dark);
+            rowLaser = false;
+            dark = 0;
+        }
+        state &= (1L << (4 * width)) - 1;
+        return state | dark << (4 * width) | (rowLaser ? 1L : 0) << (5 * width);
+    }
+
+    /**
+     * Ends a row segment without a laser: each of its dark cells now needs
+     * a laser further down its column.
+     *
+     * @param state the state
+     * @param dark  the sweep columns of the segment's dark cells
+     * @return the new state
+     */
+    private long closeRow(long state, long dark) {
+        while (dark != 0) {
+            state = withColumn(state, Long.numberOfTrailingZeros(dark), NEED);
+            dark &= dark - 1;
+        }
+        return state;
+    }
+
+    /**
+     * Returns true if a state after the last cell breaks no rule.
+     *
+     * @param state the state
+     * @return boolean
+     */
+    private boolean isFinished(long state) {
+        for (int w = 0; w < width; w++) {
+            if (column(state, w) == NEED || pend(state, w) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns what the last cell of a sweep column tells the cell below it.
+     *
+     * @param state the state
+     * @param w     the sweep column
+     * @return NONE, BEAM, NEED or LASER
+     */
+    private static int column(long state, int w) {
+        return (int) (state >>> (4 * w)) & 3;
+    }
+
+    /**
+     * Returns how many more lasers the pillar that is the last cell of a
+     * sweep column needs.
+     *
+     * @param state the state
+     * @param w     the sweep column
+     * @return int
+     */
+    private static int pend(long state, int w) {
+        return (int) (state >>> (4 * w + 2)) & 3;
+    }
+
+    /**
+     * Returns a state with one sweep column's value changed.
+     *
+     * @param state the state
+     * @param w     the sweep column
+     * @param value NONE, BEAM, NEED or LASER
+     * @return the new state
+     */
+    private static long withColumn(long state, int w, int value) {
+        return state & ~(3L << (4 * w)) | (long) value << (4 * w);
+    }
+
+    /**
+     * Returns a state with one sweep column's pillar count changed.
+     *
+     * @param state the state
+     * @param w     the sweep column
+     * @param value how many more lasers the pillar needs, at most 3
+     * @return the new state
+     */
+    private static long withPend(long state, int w, int value) {
+        return state & ~(3L << (4 * w + 2)) | (long) value << (4 * w + 2);
+    }
+
+    /**
+     * The distinct states of one layer of the sweep, in the order they were
+     * first reached, each with the state of the layer before it came from.
+     */
+    private static class Layer {
+
+        /** The states, in the order they were added.*/
+        private long[] states;
+
+        /** The position in the layer before, times 2, plus 1 for a laser, for each state.*/
+        private int[] from;
+
+        /** Open addressing table of positions in states, plus 1; 0 marks an empty slot.*/
+        private int[] table;
+
+        /** The number of states.*/
+        private int size;
+
+        /**
+         * Creates an empty layer.
+         *
+         * @param expected roughly how many states it will hold
+         */
+        Layer(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            states = new long[capacity / 2];
+            from = new int[capacity / 2];
+            table = new int[capacity];
+        }
+
+        /**
+         * Creates a layer holding some states again, in the same order, so
+         * that sweeping it gives the same layers as the first time.
+         *
+         * @param states the states, all different
+         */
+        Layer(long[] states) {
+            this(states.length);
+            for (long state : states) {
+                add(state);
+            }
+        }
+
+        /**
+         * Adds the starting state.
+         *
+         * @param state the state
+         */
+        void add(long state) {
+            add(state, 0);
+        }
+
+        /**
+         * Adds a state unless the layer already has it.
+         *
+         * @param state the state, or DEAD to add nothing
+         * @param came  where it came from
+         */
+        void add(long state, int came) {
+            if (state == DEAD) {
+                return;
+            }
+            int mask = table.length - 1;
+            int slot = hash(state) & mask;
+            while (table[slot] != 0) {
+                if (states[table[slot] - 1] == state) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+                from = Arrays.copyOf(from, size * 2);
+            }
+            states[size] = state;
+            from[size] = came;
+            table[slot] = ++size;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+        }
+
+        /**
+         * Doubles the table.
+         */
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = hash(states[i]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+        }
+
+        /**
+         * Returns a state.
+         *
+         * @param i its position in the layer
+         * @return long
+         */
+        long get(int i) {
+            return states[i];
+        }
+
+        /**
+         * Returns the number of states.
+         * @return int
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the states, trimmed to the number of states.
+         * @return long[]
+         */
+        long[] states() {
+            return Arrays.copyOf(states, size);
+        }
+
+        /**
+         * Returns where each state came from, trimmed to the number of
+         * states.
+         * @return int[]
+         */
+        int[] parents() {
+            return Arrays.copyOf(from, size);
+        }
+
+        /**
+         * Spreads a state's bits over an int.
+         *
+         * @param state the state
+         * @return int
+         */
+        private static int hash(long state) {
+            long z = state * 0x9e3779b97f4a7c15L;
+            return (int) (z ^ (z >>> 32));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package backtracking;
+
+import java.util.Optional;
+
+/**
+ * Finds a laser that has to be added to a partly filled safe, by reasoning
+ * from the lasers already there rather than by solving the safe.
+ *
+ * First the pillar and lighting rules are applied until nothing more
+ * follows from them; any laser they place is a hint. If they place none,
+ * each undecided cell is probed: if leaving it without a laser leads the
+ * same rules to a contradiction, it needs one, and if giving it a laser
+ * does, it is decided to stay empty, which may force lasers elsewhere.
+ * Probing stops at a time limit, so a hint either comes quickly or not at
+ * all, and the caller can fall back on a full solution.
+ *
+ * Every hint assumes the lasers already placed are right. If they are
+ * not, the rules may find nothing, or a contradiction, and no hint is
+ * given.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class HintFinder {
+
+    /**
+     * How a hint was found.
+     */
+    public enum Reason {
+        /** The pillar and lighting rules placed it directly.*/
+        PROPAGATION,
+        /** Leaving the cell without a laser led to a contradiction.*/
+        PROBING
+    }
+
+    /**
+     * A laser that has to be added, and how that was worked out.
+     */
+    public static class Hint {
+
+        /** The column of the laser.*/
+        private final int col;
+
+        /** The row of the laser.*/
+        private final int row;
+
+        /** How the hint was found.*/
+        private final Reason reason;
+
+        /**
+         * Creates a hint.
+         *
+         * @param col    The column of the laser
+         * @param row    The row of the laser
+         * @param reason How the hint was found
+         */
+        public Hint(int col, int row, Reason reason) {
+            this.col = col;
+            this.row = row;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the column of the laser.
+         * @return int
+         */
+        public int getCol() {
+            return col;
+        }
+
+        /**
+         * Returns the row of the laser.
+         * @return int
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Returns how the hint was found.
+         * @return Reason
+         */
+        public Reason getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "laser at (" + row + ", " + col + ") by " + reason.toString().toLowerCase();
+        }
+    }
+
+    /**
+     * Finds a laser that has to be added to a safe.
+     *
+     * @param safe      The safe, indexed [col][row], with the lasers placed so far
+     * @param timeLimit How long probing may take, in milliseconds
+     * @return The first such laser, going along each row in turn, or empty if
+     * none was found in time or the lasers placed so far cannot be right
+     */
+    public static Optional<Hint> find(char[][] safe, long timeLimit) {
+        long giveUp = System.nanoTime() + timeLimit * 1000000;
+        int colnum = safe.length;
+        int rownum = safe[0].length;
+        SafeBoard board = new SafeBoard(safe, rownum, colnum);
+        if (!board.isValid() || !board.propagateAll()) {
+            return Optional.empty();
+        }
+        Optional<Hint> hint = added(board, safe, Reason.PROPAGATION);
+        if (hint.isPresent()) {
+            return hint;
+        }
+
+        boolean progress = true;
+        while (progress && System.nanoTime() < giveUp) {
+            progress = false;
+            for (int cell = 0; cell < board.size(); cell++) {
+                if (!board.isFree(cell)) {
+                    continue;
+                }
+                int mark = board.getTrailSize();
+                board.assignEmpty(cell);
+                boolean empty = board.propagateLast();
+                board.undoTo(mark);
+                if (!empty) {
+                    return Optional.of(new Hint(cell % colnum, cell / colnum, Reason.PROBING));
+                }
+                board.assignLaser(cell);
+                boolean laser = board.propagateLast();
+                board.undoTo(mark);
+                if (!laser) {
+                    board.assignEmpty(cell);
+                    if (!board.propagateLast()) {
+                        return Optional.empty();
+                    }
+                    hint = added(board, safe, Reason.PROBING);
+                    if (hint.isPresent()) {
+                        return hint;
+                    }
+                    progress = true;
+                }
+                if (System.nanoTime() >= giveUp) {
+                    break;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the first laser on the board that is not in the safe.
+     *
+     * @param board  The board, after the rules have been applied
+     * @param safe   The safe the board was built from
+     * @param reason How the board's lasers were worked out
+     * @return The laser, or empty if there is none
+     */
+    private static Optional<Hint> added(SafeBoard board, char[][] safe, Reason reason) {
+        int colnum = safe.length;
+        for (int cell = 0; cell < board.size(); cell++) {
+            int col = cell % colnum;
+            int row = cell / colnum;
+            if (board.isLaser(cell) && safe[col][row] != SafeConfig.LASER) {
+                return Optional.of(new Hint(col, row, reason));
+            }
+        }
+        return Optional.empty();
+    }
+}
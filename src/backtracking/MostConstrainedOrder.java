@@ -0,0 +1,60 @@
+package backtracking;
+
+/**
+ * Decides the cell that matters to the tightest constraint first, so
+ * contradictions turn up near the top of the tree instead of at its
+ * leaves. The constraints are the dark cells, which have as many options
+ * as free cells that could light them, and the numbered pillars still
+ * missing lasers, which have as many to spare as free neighbours beyond
+ * the lasers they are missing. The first free cell of the constraint
+ * with the fewest options is picked, and a constraint with no options
+ * left ends the branch.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class MostConstrainedOrder implements CellOrder {
+
+    @Override
+    public int next(SafeBoard board, int from) {
+        int best = -1;
+        int bestOptions = Integer.MAX_VALUE;
+        for (int cell = 0; cell < board.size() && bestOptions > 1; cell++) {
+            int options;
+            if (board.isDark(cell)) {
+                options = board.getSources(cell);
+            } else if (board.getNeed(cell) > board.getAdjacent(cell)) {
+                options = board.freeNeighbors(cell) - (board.getNeed(cell) - board.getAdjacent(cell)) + 1;
+            } else {
+                continue;
+            }
+            if (options <= 0) {
+                return -1;
+            }
+            if (options < bestOptions) {
+                best = cell;
+                bestOptions = options;
+            }
+        }
+        if (best < 0) {
+            return -1;
+        }
+        if (board.isDark(best)) {
+            if (board.isFree(best)) {
+                return best;
+            }
+            for (int i = board.getLeft(best); i <= board.getRight(best); i++) {
+                if (board.isFree(i)) {
+                    return i;
+                }
+            }
+            int colnum = board.getColnum();
+            for (int i = board.getTop(best); i <= board.getBottom(best); i += colnum) {
+                if (board.isFree(i)) {
+                    return i;
+                }
+            }
+        }
+        return board.firstFreeNeighbor(best);
+    }
+}
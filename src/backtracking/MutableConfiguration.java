@@ -0,0 +1,49 @@
+package backtracking;
+
+/**
+ * A configuration that can be searched in place. Instead of handing out
+ * copies of itself as successors, it opens a decision with choose(),
+ * applies one of its options with apply() and takes it back with undo(),
+ * so a single object is walked through the whole search.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public interface MutableConfiguration extends Configuration {
+    /**
+     * Picks the next thing to decide.
+     *
+     * @return The number of options for it, or 0 if nothing is left
+     * to decide
+     */
+    public int choose();
+
+    /**
+     * Applies one option of the most recently chosen decision.
+     *
+     * @param option The option, from 0 up to what choose() returned
+     * @return true if the configuration is still valid; false otherwise
+     */
+    public boolean apply(int option);
+
+    /**
+     * Takes back the most recent apply().
+     */
+    public void undo();
+
+    /**
+     * Tells the configuration that the search has accepted it, as it is
+     * now, as a solution. isGoal() only answers the question, so this is
+     * where a configuration that keeps track of what its search has found
+     * counts it.
+     */
+    public void goalReached();
+
+    /**
+     * Makes an independent copy of the configuration as it is now. The
+     * copy can be searched on its own, even on another thread.
+     *
+     * @return The copy
+     */
+    public MutableConfiguration snapshot();
+}
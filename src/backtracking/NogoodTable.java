@@ -0,0 +1,196 @@
+package backtracking;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers parts of a safe that the in-place search has already proven
+ * cannot be finished, so it does not search them again when it comes back
+ * to them by another path.
+ *
+ * What is remembered is the frontier of a board: every cell from the first
+ * free cell on, whether it holds a laser, was decided to stay empty or is
+ * lit, together with what the cells before it still need from the cells
+ * after it. Those are the laser counts of the numbered pillars next to the
+ * frontier and, for every dark cell before it, which segments crossing the
+ * frontier could still light it. Every cell before the first free cell is
+ * decided, so two boards with the same frontier can be finished in exactly
+ * the same ways, however different the lasers behind the frontier are.
+ *
+ * A frontier is stored as a 64-bit Zobrist-style hash: a random number for
+ * each fact above, all XORed together. The table is a fixed-size array,
+ * indexed by the hash, where a new entry replaces whatever was in its slot,
+ * so its memory never grows. Two different frontiers sharing a hash would
+ * wrongly cut off a search, but with 64 bits that is too unlikely to worry
+ * about. A table only makes sense for one safe, since the pillars are not
+ * part of the hash; it may be shared by searches of the same safe running
+ * on different threads.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class NogoodTable {
+
+    /** The kinds of fact that go into a hash.*/
+    private static final long FIRST = 1, LASER = 2, BLOCKED = 3, LIT = 4, PILLAR = 5, COLUMN = 6, EITHER = 7,
+            ROW = 8, HOPELESS = 9;
+
+    /** The hashes of the frontiers proven to have no solution; 0 marks an empty slot.*/
+    private final AtomicLongArray keys;
+
+    /** The number of slots, less one.*/
+    private final int mask;
+
+    /** The number of lookups that found a frontier, and the number of frontiers stored.*/
+    private final AtomicLong hits = new AtomicLong(), stores = new AtomicLong();
+
+    /**
+     * Creates an empty table.
+     *
+     * @param bits The table has 2 to the power bits slots, 8 bytes each
+     */
+    public NogoodTable(int bits) {
+        this.keys = new AtomicLongArray(1 << bits);
+        this.mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Returns true if a frontier has been proven to have no solution.
+     *
+     * @param key The frontier's hash, from key()
+     * @return boolean
+     */
+    public boolean contains(long key) {
+        if (keys.get(slot(key)) == key) {
+            hits.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that a frontier has no solution, replacing whatever was in
+     * its slot.
+     *
+     * @param key The frontier's hash, from key()
+     */
+    public void add(long key) {
+        keys.set(slot(key), key);
+        stores.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of lookups that found a frontier.
+     * @return long
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of frontiers stored.
+     * @return long
+     */
+    public long getStores() {
+        return stores.get();
+    }
+
+    /**
+     * Returns the slot a hash goes in.
+     *
+     * @param key The hash
+     * @return int
+     */
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * Works out the hash of a board's frontier.
+     *
+     * The cells from the first free cell on are hashed 64 at a time, a
+     * word of each bitset being one fact. The only cells before the first
+     * free cell that can be lit from after it are in its row and in the
+     * columns it has passed, so only those are looked at: the last cell
+     * before it in each column, and above that its column segment up to
+     * the first dark cell. A dark cell in a segment no later cell lies in
+     * can never be lit, which the board already counts as invalid.
+     *
+     * @param board   The board, which must be valid
+     * @param scratch Scratch space of at least 4 longs
+     * @return The hash, never 0
+     */
+    public static long key(SafeBoard board, long[] scratch) {
+        int size = board.size();
+        int colnum = board.getColnum();
+        int first = board.firstFree();
+        long key = fact(FIRST, first, 0);
+        int frontier = Math.max(0, first - colnum);
+        int unmet = 0;
+        for (int w = frontier >>> 6; w < board.wordCount(); w++) {
+            board.words(w, scratch);
+            long from = w == first >>> 6 ? -1L << first : w > first >>> 6 ? -1L : 0;
+            key ^= fact(LASER, w, scratch[1] & from) ^ fact(LIT, w, scratch[2] & from)
+                    ^ fact(BLOCKED, w, scratch[3] & from);
+            long pillars = scratch[0] & (w == frontier >>> 6 ? -1L << frontier : -1L);
+            while (pillars != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(pillars);
+                pillars &= pillars - 1;
+                if (board.getNeed(cell) >= 0) {
+                    key ^= fact(PILLAR, cell, board.getAdjacent(cell));
+                    if (board.getAdjacent(cell) != board.getNeed(cell)) {
+                        unmet++;
+                    }
+                }
+            }
+        }
+        if (unmet != board.getUnmet()) {
+            // a pillar that no later cell is next to is still wrong
+            key ^= fact(HOPELESS, 0, 0);
+        }
+        boolean row = false;
+        for (int last = frontier; last < first; last++) {
+            if (board.isDark(last)) {
+                boolean across = board.getRight(last) >= first;
+                boolean down = board.getBottom(last) > last;
+                if (across && !down && !row) {
+                    // every such cell is in the row segment just before the frontier
+                    row = true;
+                    key ^= fact(ROW, board.getLeft(last), 0);
+                } else if (down) {
+                    key ^= fact(across ? EITHER : COLUMN, board.getTop(last), 0);
+                    if (!across) {
+                        continue;
+                    }
+                }
+            }
+            if (board.getBottom(last) <= last) {
+                continue;
+            }
+            for (int cell = last - colnum; cell >= board.getTop(last); cell -= colnum) {
+                if (board.isDark(cell)) {
+                    key ^= fact(COLUMN, board.getTop(last), 0);
+                    break;
+                }
+            }
+        }
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Returns the random number standing for one fact about a frontier.
+     *
+     * @param kind  What kind of fact it is
+     * @param cell  The cell or word it is about
+     * @param value A count or word of bits that goes with it, or 0
+     * @return long
+     */
+    private static long fact(long kind, int cell, long value) {
+        long z = value * 0x9e3779b97f4a7c15L;
+        z ^= (kind << 56) ^ ((long) cell << 24) ^ (z >>> 29);
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
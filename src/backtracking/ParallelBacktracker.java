@@ -0,0 +1,233 @@
+package backtracking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A backtracker that spreads the search over a ForkJoinPool. The first
+ * few decisions are expanded into one task per valid option; below that
+ * depth every task runs the ordinary in-place search on its own copy of
+ * the configuration. Idle workers steal whole subtrees from busy ones,
+ * and all of the tasks share one stop flag, so the first goal found (or
+ * a call to cancel()) ends the whole search. An optional time limit
+ * makes every task give up once it has passed.
+ *
+ * The stop flag and counters belong to the search that is running, so
+ * a ParallelBacktracker runs one search at a time; give each thread that
+ * searches its own.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class ParallelBacktracker {
+
+    /** The pool the tasks run in.*/
+    private final ForkJoinPool pool;
+
+    /** How many decisions are expanded into separate tasks.*/
+    private final int splitDepth;
+
+    /** The stop flag of the search that is currently running.*/
+    private volatile AtomicBoolean stop = new AtomicBoolean();
+
+    /** The counters of the current search, summed over its in-place searches.*/
+    private volatile SolverStats stats = new SolverStats();
+
+    /** How long, in milliseconds, each search may run, or 0 for no limit.*/
+    private long timeLimit;
+
+    /**
+     * Initialize a parallel backtracker that runs in the common pool.
+     */
+    public ParallelBacktracker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Initialize a parallel backtracker that runs in the given pool. The
+     * split depth gives about sixteen tasks per worker, which leaves the
+     * pool plenty to steal when some subtrees die out early.
+     *
+     * @param pool The pool to run in
+     */
+    public ParallelBacktracker(ForkJoinPool pool) {
+        this(pool, 32 - Integer.numberOfLeadingZeros(pool.getParallelism()) + 4);
+    }
+
+    /**
+     * Initialize a parallel backtracker.
+     *
+     * @param pool       The pool to run in
+     * @param splitDepth How many decisions to expand into separate tasks
+     */
+    public ParallelBacktracker(ForkJoinPool pool, int splitDepth) {
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Makes every search give up once it has run for the given time.
+     *
+     * @param millis The time limit, or 0 for none
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+    }
+
+    /**
+     * Try find a solution, if one exists, for a given configuration.
+     *
+     * @param config A valid configuration; it is not modified
+     * @return A solution config, or empty if no solution or the search
+     * was cancelled or timed out
+     */
+    public Optional<Configuration> solve(MutableConfiguration config) {
+        return solve(config, new AtomicBoolean());
+    }
+
+    /**
+     * Try find a solution, if one exists, for a given configuration,
+     * giving up as soon as the given flag is set. Since the caller owns
+     * the flag, it can cancel this search without any risk of cancelling
+     * a later one instead.
+     *
+     * @param config A valid configuration; it is not modified
+     * @param flag   The flag to watch; the search sets it itself when it
+     *               finds a solution
+     * @return A solution config, or empty if no solution or the search
+     * was cancelled or timed out; getStats() tells which
+     */
+    public Optional<Configuration> solve(MutableConfiguration config, AtomicBoolean flag) {
+        this.stop = flag;
+        AtomicReference<Configuration> result = new AtomicReference<>();
+        SolverStats total = new SolverStats();
+        total.start();
+        this.stats = total;
+        long deadline = timeLimit > 0 ? System.nanoTime() + timeLimit * 1000000L : Long.MAX_VALUE;
+        pool.invoke(new SolveTask(config.snapshot(), 0, flag, result, total, deadline));
+        total.finish();
+        // the tasks a solution stopped say they were cancelled; the search only was if nothing was found
+        total.cancelled = result.get() == null && flag.get() && !total.timedOut;
+        return Optional.ofNullable(result.get());
+    }
+
+    /**
+     * Returns the counters of the most recent search, summed over the
+     * in-place searches its tasks ran. Tasks that are still running have
+     * not been added yet.
+     *
+     * @return The counters
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Stops the search that is currently running, if any.
+     */
+    public void cancel() {
+        stop.set(true);
+    }
+
+    /**
+     * A task that searches the subtree below one configuration.
+     */
+    private class SolveTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The configuration at the root of the subtree, owned by this task.*/
+        private final MutableConfiguration config;
+
+        /** Number of decisions made above this task.*/
+        private final int depth;
+
+        /** The stop flag shared by every task of the search.*/
+        private final AtomicBoolean stop;
+
+        /** Where the first solution found is put.*/
+        private final AtomicReference<Configuration> result;
+
+        /** The counters of the search this task belongs to.*/
+        private final SolverStats total;
+
+        /** The System.nanoTime() after which the search gives up.*/
+        private final long giveUp;
+
+        /**
+         * Creates a task for the subtree below a configuration.
+         *
+         * @param config The configuration, which the task takes ownership of
+         * @param depth  Number of decisions made above it
+         * @param stop   The shared stop flag
+         * @param result Where to put the solution
+         * @param total  The counters of the search
+         * @param giveUp When the search gives up
+         */
+        SolveTask(MutableConfiguration config, int depth, AtomicBoolean stop,
+                  AtomicReference<Configuration> result, SolverStats total, long giveUp) {
+            this.config = config;
+            this.depth = depth;
+            this.stop = stop;
+            this.result = result;
+            this.total = total;
+            this.giveUp = giveUp;
+        }
+
+        @Override
+        protected void compute() {
+            if (stop.get()) {
+                return;
+            }
+            if (System.nanoTime() > giveUp) {
+                synchronized (total) {
+                    total.timedOut = true;
+                }
+                return;
+            }
+            if (config.isGoal()) {
+                config.goalReached();
+                found(config);
+                return;
+            }
+            if (depth >= splitDepth) {
+                Backtracker bt = new Backtracker(false, stop);
+                bt.setDeadline(giveUp);
+                Optional<Configuration> sol = bt.solveInPlace(config);
+                total.add(bt.getStats());
+                if (sol.isPresent()) {
+                    found(sol.get());
+                }
+                return;
+            }
+            List<SolveTask> children = new ArrayList<>();
+            int options = config.choose();
+            for (int i = 0; i < options; i++) {
+                if (config.apply(i)) {
+                    children.add(new SolveTask(config.snapshot(), depth + 1, stop, result, total, giveUp));
+                }
+                config.undo();
+            }
+            invokeAll(children);
+        }
+
+        /**
+         * Records a solution, unless another task got there first, and
+         * tells every other task to stop.
+         *
+         * @param sol The solution
+         */
+        private void found(Configuration sol) {
+            result.compareAndSet(null, sol);
+            stop.set(true);
+            synchronized (total) {
+                total.solved();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package backtracking;
+
+/**
+ * Decides cells from left to right and top to bottom, the order the
+ * original successor generation uses.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class RowMajorOrder implements CellOrder {
+
+    @Override
+    public int next(SafeBoard board, int from) {
+        for (int cell = from; cell < board.size(); cell++) {
+            if (board.isFree(cell)) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
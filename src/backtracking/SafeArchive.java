@@ -0,0 +1,280 @@
+package backtracking;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Reads a safe archive: a binary file holding any number of safes, each
+ * with an optional solution and solve statistics, written by a
+ * SafeArchiveWriter. The whole file is memory-mapped, and an index at
+ * its end gives where every safe starts, so any safe can be read without
+ * looking at the others.
+ *
+ * The layout, with every number big-endian:
+ * <pre>
+ *   header   "SAFA", int version, int count, long index offset
+ *   record   short rows, short cols, byte flags,
+ *            the cells, packed two to a byte (see CELLS),
+ *            if SOLVED: one bit per cell, set where the solution has a laser,
+ *            if STATS:  long nodes searched, long nanoseconds taken
+ *   index    one long offset per record
+ * </pre>
+ * A 14x14 safe takes 103 bytes, or 144 with its solution and statistics,
+ * plus 8 for its index entry, against 398 for the text layout.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeArchive {
+
+    /** The first four bytes of every archive.*/
+    static final int MAGIC = 0x53414641;
+
+    /** The version of the layout this class reads and writes.*/
+    static final int VERSION = 1;
+
+    /** The size of the header, in bytes.*/
+    static final int HEADER_SIZE = 20;
+
+    /** Record flags: the record holds a solution, the safe has none, the record holds statistics.*/
+    static final int SOLVED = 1, UNSOLVABLE = 2, STATS = 4;
+
+    /** The characters cells are stored as, by their 4-bit code.*/
+    static final char[] CELLS = {SafeConfig.EMPTY, SafeConfig.XPILLAR, '0', '1', '2', '3', '4', SafeConfig.LASER};
+
+    /** The mapped file.*/
+    private final ByteBuffer data;
+
+    /** The number of safes in the archive.*/
+    private final int count;
+
+    /** Where the index starts.*/
+    private final int index;
+
+    /** The name of the file, for error messages.*/
+    private final String filename;
+
+    /**
+     * Opens an archive by mapping it into memory.
+     *
+     * @param filename The archive file
+     * @throws FileNotFoundException if the file cannot be opened
+     * @throws SafeFormatException   if the file is not an archive
+     */
+    public SafeArchive(String filename) throws FileNotFoundException {
+        this.filename = filename;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new SafeFormatException(filename, "archives over 2 GB are not supported");
+            }
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(filename + " (No such file or directory)");
+        } catch (IOException e) {
+            throw new UncheckedIOException(filename, e);
+        }
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new SafeFormatException(filename, "not a safe archive");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new SafeFormatException(filename, "unsupported archive version " + data.getInt(4));
+        }
+        this.count = data.getInt(8);
+        long offset = data.getLong(12);
+        if (count < 0 || offset < HEADER_SIZE || offset + 8L * count > data.limit()) {
+            throw new SafeFormatException(filename, "damaged archive header");
+        }
+        this.index = (int) offset;
+    }
+
+    /**
+     * Checks whether a file is a safe archive, by its first bytes.
+     *
+     * @param filename The file
+     * @return true if it starts like an archive
+     */
+    public static boolean isArchive(String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until four bytes are in or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of safes in the archive.
+     * @return int
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns where a record starts.
+     *
+     * @param i The record's number, from 0
+     * @return The offset
+     */
+    private int offset(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("safe " + i + " of " + count);
+        }
+        return (int) data.getLong(index + 8 * i);
+    }
+
+    /**
+     * Reads a safe.
+     *
+     * @param i The safe's number, from 0
+     * @return Its grid
+     */
+    public char[][] getSafe(int i) {
+        int at = offset(i);
+        int rownum = data.getShort(at) & 0xffff;
+        int colnum = data.getShort(at + 2) & 0xffff;
+        int cells = at + 5;
+        char[][] grid = new char[colnum][rownum];
+        for (int cell = 0; cell < rownum * colnum; cell++) {
+            int code = (data.get(cells + (cell >> 1)) >> ((cell & 1) == 0 ? 4 : 0)) & 15;
+            if (code >= CELLS.length) {
+                throw new SafeFormatException(filename, "safe " + i + " has a bad cell code " + code);
+            }
+            grid[cell % colnum][cell / colnum] = CELLS[code];
+        }
+        return grid;
+    }
+
+    /**
+     * Reads the solution of a safe.
+     *
+     * @param i The safe's number, from 0
+     * @return The solution grid, SolutionCache.UNSOLVABLE if the safe is
+     * known to have none, or null if the archive does not say
+     */
+    public char[][] getSolution(int i) {
+        int at = offset(i);
+        int flags = data.get(at + 4);
+        if ((flags & UNSOLVABLE) != 0) {
+            return SolutionCache.UNSOLVABLE;
+        }
+        if ((flags & SOLVED) == 0) {
+            return null;
+        }
+        char[][] grid = getSafe(i);
+        int colnum = grid.length;
+        int size = colnum * grid[0].length;
+        int bits = at + 5 + (size + 1) / 2;
+        for (int cell = 0; cell < size; cell++) {
+            if ((data.get(bits + (cell >> 3)) & (0x80 >>> (cell & 7))) != 0) {
+                grid[cell % colnum][cell / colnum] = SafeConfig.LASER;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns true if the archive holds statistics for a safe.
+     *
+     * @param i The safe's number, from 0
+     * @return boolean
+     */
+    public boolean hasStats(int i) {
+        return (data.get(offset(i) + 4) & STATS) != 0;
+    }
+
+    /**
+     * Returns the number of configurations searched to solve a safe.
+     *
+     * @param i The safe's number, from 0
+     * @return long, or -1 if the archive does not say
+     */
+    public long getNodes(int i) {
+        int stats = statsOffset(i);
+        return stats < 0 ? -1 : data.getLong(stats);
+    }
+
+    /**
+     * Returns how long it took to solve a safe, in milliseconds.
+     *
+     * @param i The safe's number, from 0
+     * @return double, or -1 if the archive does not say
+     */
+    public double getElapsedMillis(int i) {
+        int stats = statsOffset(i);
+        return stats < 0 ? -1 : data.getLong(stats + 8) / 1e6;
+    }
+
+    /**
+     * Returns where a record's statistics start.
+     *
+     * @param i The record's number, from 0
+     * @return The offset, or -1 if it has none
+     */
+    private int statsOffset(int i) {
+        int at = offset(i);
+        int flags = data.get(at + 4);
+        if ((flags & STATS) == 0) {
+            return -1;
+        }
+        int size = (data.getShort(at) & 0xffff) * (data.getShort(at + 2) & 0xffff);
+        return at + 5 + (size + 1) / 2 + ((flags & SOLVED) != 0 ? (size + 7) / 8 : 0);
+    }
+
+    /**
+     * Packs safe files into an archive, or lists what an archive holds.
+     * <pre>
+     *   java SafeArchive pack archive (directory | manifest) [solve]
+     *   java SafeArchive list archive
+     * </pre>
+     * Packing reads every safe in every file; with solve, each one is
+     * solved first and its solution and statistics are stored with it.
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args.length <= 4 && args[0].equals("pack")) {
+            boolean solve = args.length == 4 && args[3].equals("solve");
+            try (SafeArchiveWriter out = new SafeArchiveWriter(args[1])) {
+                for (File file : BatchSolver.listSafes(new File(args[2]))) {
+                    for (char[][] safe : SafeParser.readAll(file.getPath())) {
+                        if (!solve) {
+                            out.add(safe);
+                            continue;
+                        }
+                        SafeConfig init = new SafeConfig(new SafeBoard(safe, safe[0].length, safe.length));
+                        init.setCellOrder(new MostConstrainedOrder());
+                        Backtracker bt = new Backtracker(false);
+                        Optional<Configuration> sol = init.propagate() ? bt.solveInPlace(init) : Optional.empty();
+                        out.add(safe, sol.isPresent() ? sol.get().getSafe() : SolutionCache.UNSOLVABLE, bt.getStats());
+                    }
+                }
+            }
+        } else if (args.length == 2 && args[0].equals("list")) {
+            SafeArchive archive = new SafeArchive(args[1]);
+            for (int i = 0; i < archive.size(); i++) {
+                char[][] safe = archive.getSafe(i);
+                char[][] solution = archive.getSolution(i);
+                System.out.printf("%d\t%dx%d\t%s%s%n", i, safe[0].length, safe.length,
+                        solution == null ? "unknown" : solution == SolutionCache.UNSOLVABLE ? "unsolvable" : "solved",
+                        archive.hasStats(i) ? String.format("\t%d nodes\t%.1f ms", archive.getNodes(i),
+                                archive.getElapsedMillis(i)) : "");
+            }
+        } else {
+            System.out.println("Usage: java SafeArchive pack archive (directory | manifest) [solve]");
+            System.out.println("       java SafeArchive list archive");
+        }
+    }
+}
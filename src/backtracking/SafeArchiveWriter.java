@@ -0,0 +1,180 @@
+package backtracking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a safe archive, the binary layout SafeArchive reads. Safes are
+ * appended one at a time through a buffer; the index and the final
+ * header are written by close(), so an archive that was never closed is
+ * not readable.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeArchiveWriter implements Closeable {
+
+    /** The file being written.*/
+    private final FileChannel out;
+
+    /** Records waiting to be written.*/
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /** Where the next record starts in the file.*/
+    private long position = SafeArchive.HEADER_SIZE;
+
+    /** Where each record starts.*/
+    private long[] offsets = new long[1024];
+
+    /** The number of records written.*/
+    private int count;
+
+    /**
+     * Creates an archive, replacing any file of the same name.
+     *
+     * @param filename The archive file
+     * @throws IOException if the file cannot be created
+     */
+    public SafeArchiveWriter(String filename) throws IOException {
+        this.out = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        out.write(ByteBuffer.allocate(SafeArchive.HEADER_SIZE), 0);
+        out.position(SafeArchive.HEADER_SIZE);
+    }
+
+    /**
+     * Adds a safe with nothing known about its solution.
+     *
+     * @param safe The safe's grid
+     * @return The safe's number in the archive
+     * @throws IOException if the archive cannot be written
+     */
+    public int add(char[][] safe) throws IOException {
+        return add(safe, null, null);
+    }
+
+    /**
+     * Adds a safe, with its solution and the statistics of the search that
+     * found it, if known.
+     *
+     * @param safe     The safe's grid
+     * @param solution The solution grid, SolutionCache.UNSOLVABLE if there
+     *                 is none, or null if it is not known
+     * @param stats    The search's statistics, or null
+     * @return The safe's number in the archive
+     * @throws IOException if the archive cannot be written
+     */
+    public int add(char[][] safe, char[][] solution, SolverStats stats) throws IOException {
+        int colnum = safe.length;
+        int rownum = safe[0].length;
+        if (rownum > 0xffff || colnum > 0xffff) {
+            throw new IllegalArgumentException("safe is too large: " + rownum + "x" + colnum);
+        }
+        int size = rownum * colnum;
+        boolean solved = solution != null && solution != SolutionCache.UNSOLVABLE;
+        int length = 5 + (size + 1) / 2 + (solved ? (size + 7) / 8 : 0) + (stats != null ? 16 : 0);
+        if (buffer.remaining() < length) {
+            flush();
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(length);
+            }
+        }
+
+        int flags = (solved ? SafeArchive.SOLVED : 0)
+                | (solution == SolutionCache.UNSOLVABLE ? SafeArchive.UNSOLVABLE : 0)
+                | (stats != null ? SafeArchive.STATS : 0);
+        buffer.putShort((short) rownum).putShort((short) colnum).put((byte) flags);
+        int packed = 0;
+        for (int cell = 0; cell < size; cell++) {
+            packed = (packed << 4) | code(safe[cell % colnum][cell / colnum]);
+            if ((cell & 1) == 1) {
+                buffer.put((byte) packed);
+                packed = 0;
+            }
+        }
+        if ((size & 1) == 1) {
+            buffer.put((byte) (packed << 4));
+        }
+        if (solved) {
+            int bits = 0;
+            for (int cell = 0; cell < size; cell++) {
+                bits = (bits << 1) | (solution[cell % colnum][cell / colnum] == SafeConfig.LASER ? 1 : 0);
+                if ((cell & 7) == 7) {
+                    buffer.put((byte) bits);
+                    bits = 0;
+                }
+            }
+            if ((size & 7) != 0) {
+                buffer.put((byte) (bits << (8 - (size & 7))));
+            }
+        }
+        if (stats != null) {
+            buffer.putLong(stats.getNodes()).putLong((long) (stats.getElapsedMillis() * 1e6));
+        }
+
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count] = position;
+        position += length;
+        return count++;
+    }
+
+    /**
+     * Returns the 4-bit code a cell is stored as.
+     *
+     * @param ch The cell
+     * @return int
+     */
+    private static int code(char ch) {
+        for (int code = 0; code < SafeArchive.CELLS.length; code++) {
+            if (SafeArchive.CELLS[code] == ch) {
+                return code;
+            }
+        }
+        // beams and anything else are stored as empty cells
+        return 0;
+    }
+
+    /**
+     * Writes out the records waiting in the buffer.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the index and the header, and closes the file.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < 8) {
+                    flush();
+                }
+                buffer.putLong(offsets[i]);
+            }
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(SafeArchive.HEADER_SIZE);
+            header.putInt(SafeArchive.MAGIC).putInt(SafeArchive.VERSION).putInt(count).putLong(position);
+            header.flip();
+            out.write(header, 0);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,1064 @@
+package backtracking;
+
+/**
+ * A bit-packed representation of a safe. Cells are numbered in row-major
+ * order (cell = row * colnum + col) and the lasers, pillars and lit cells
+ * are kept as long[] bitsets. Every cell also knows the bounds of the row
+ * and column segment it sits in (the run of cells between two pillars or
+ * the edge of the safe), which is exactly how far a beam travels.
+ *
+ * Placing or removing a laser only touches the cells of its two segments
+ * and its four neighbours, and keeps running counts of conflicts, pillar
+ * errors and dark cells up to date. That makes isValid() and isGoal()
+ * constant time instead of rebuilding a beam grid for every check.
+ *
+ * The board also counts the free cells of every segment, which gives the
+ * number of places a laser could still go to light any cell, and keeps
+ * a count of the dark cells that have none left, so a cell that can no
+ * longer be lit makes the board invalid as soon as it happens rather
+ * than when the search reaches a leaf.
+ *
+ * For in-place searching, assignLaser() and assignEmpty() record each
+ * decision on a trail so that undoTo() can take the board back to any
+ * earlier point without copying it.
+ *
+ * propagate() draws the conclusions that follow from the decisions made
+ * so far and puts them on the same trail. A cell is free when it is not
+ * decided and not lit, since a laser on a lit cell would see the laser
+ * lighting it. A numbered pillar whose missing lasers equal its free
+ * neighbours gets lasers on all of them, a pillar that already has its
+ * lasers (including every 0) has its free neighbours left empty, and a
+ * dark cell with a single free cell left that could light it gets a
+ * laser there.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeBoard {
+
+    /** The number of rows in the safe.*/
+    private final int rownum;
+
+    /** The number of columns in the safe.*/
+    private final int colnum;
+
+    /** Bitset of the pillar cells, numbered or not.*/
+    private final long[] pillars;
+
+    /** Bitset of the cells holding a laser.*/
+    private final long[] lasers;
+
+    /** Bitset of the cells reached by at least one beam.*/
+    private final long[] lit;
+
+    /** Bitset of the cells that have been decided to stay without a laser.*/
+    private final long[] blocked;
+
+    /** Number of lasers required next to a numbered pillar, -1 for every other cell.*/
+    private final int[] need;
+
+    /** Number of lasers currently next to each pillar.*/
+    private final int[] adjacent;
+
+    /** Number of lasers whose beam reaches each cell.*/
+    private final int[] cover;
+
+    /** First and last cell of the row segment each cell belongs to.*/
+    private final int[] left, right;
+
+    /** First and last cell of the column segment each cell belongs to.*/
+    private final int[] top, bottom;
+
+    /** Number of free cells in each row and column segment, indexed by the segment's first cell.*/
+    private final int[] rowFree, colFree;
+
+    /** The decisions made since the board was built, most recent last.*/
+    private final int[] trail;
+
+    /** Number of decisions on the trail.*/
+    private int trailSize;
+
+    /** Cells waiting to be looked at by propagate(), used as a ring buffer.*/
+    private int[] queue;
+
+    /** Bitset of the cells currently in the queue.*/
+    private long[] queued;
+
+    /** Position in the queue of the next cell to look at, and the number of cells waiting.*/
+    private int queueHead, queueSize;
+
+    /** Number of pairs of lasers that can see each other.*/
+    private int conflicts;
+
+    /** Number of numbered pillars with more lasers around them than their number.*/
+    private int overfull;
+
+    /** Number of numbered pillars whose laser count differs from their number.*/
+    private int unmet;
+
+    /** Number of non-pillar cells that hold no laser and are not reached by a beam.*/
+    private int dark;
+
+    /** Number of dark cells that no free cell is left to light.*/
+    private int dead;
+
+    /** Scratch space for a cell's neighbours, so the rules allocate nothing.*/
+    private final int[] around = new int[4];
+
+    /**
+     * Builds a board from a safe grid, indexed [col][row] like the rest of
+     * the project. Digits and 'X' become pillars, 'L' becomes a laser and
+     * everything else is treated as an empty cell.
+     *
+     * @param grid   the safe, indexed [col][row]
+     * @param rownum number of rows
+     * @param colnum number of columns
+     */
+    public SafeBoard(char[][] grid, int rownum, int colnum) {
+        this.rownum = rownum;
+        this.colnum = colnum;
+        int size = rownum * colnum;
+        int words = (size + 63) >>> 6;
+        this.pillars = new long[words];
+        this.lasers = new long[words];
+        this.lit = new long[words];
+        this.blocked = new long[words];
+        this.need = new int[size];
+        this.adjacent = new int[size];
+        this.cover = new int[size];
+        this.left = new int[size];
+        this.right = new int[size];
+        this.top = new int[size];
+        this.bottom = new int[size];
+        this.trail = new int[size];
+        this.rowFree = new int[size];
+        this.colFree = new int[size];
+
+        for (int r = 0; r < rownum; r++) {
+            for (int c = 0; c < colnum; c++) {
+                int cell = r * colnum + c;
+                char curr = grid[c][r];
+                need[cell] = -1;
+                if (Character.isDigit(curr)) {
+                    set(pillars, cell);
+                    need[cell] = Character.getNumericValue(curr);
+                    if (need[cell] != 0) {
+                        unmet++;
+                    }
+                } else if (curr == SafeConfig.XPILLAR) {
+                    set(pillars, cell);
+                } else {
+                    dark++;
+                }
+            }
+        }
+        findSegments();
+        for (int cell = 0; cell < size; cell++) {
+            if (!isPillar(cell)) {
+                rowFree[left[cell]]++;
+                colFree[top[cell]]++;
+            }
+        }
+
+        for (int r = 0; r < rownum; r++) {
+            for (int c = 0; c < colnum; c++) {
+                if (grid[c][r] == SafeConfig.LASER) {
+                    placeLaser(r * colnum + c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies another board. The segment bounds and pillar data never change,
+     * so they are shared with the original.
+     *
+     * @param other the board to copy
+     */
+    public SafeBoard(SafeBoard other) {
+        this.rownum = other.rownum;
+        this.colnum = other.colnum;
+        this.pillars = other.pillars;
+        this.need = other.need;
+        this.left = other.left;
+        this.right = other.right;
+        this.top = other.top;
+        this.bottom = other.bottom;
+        this.lasers = other.lasers.clone();
+        this.lit = other.lit.clone();
+        this.blocked = other.blocked.clone();
+        this.trail = other.trail.clone();
+        this.trailSize = other.trailSize;
+        this.rowFree = other.rowFree.clone();
+        this.colFree = other.colFree.clone();
+        this.adjacent = other.adjacent.clone();
+        this.cover = other.cover.clone();
+        this.conflicts = other.conflicts;
+        this.overfull = other.overfull;
+        this.unmet = other.unmet;
+        this.dark = other.dark;
+        this.dead = other.dead;
+    }
+
+    /**
+     * Records, for every cell, the first and last cell of the row and
+     * column segment that it is part of.
+     */
+    private void findSegments() {
+        for (int r = 0; r < rownum; r++) {
+            int start = r * colnum;
+            for (int c = 0; c < colnum; c++) {
+                int cell = r * colnum + c;
+                if (isPillar(cell)) {
+                    start = cell + 1;
+                } else {
+                    left[cell] = start;
+                }
+            }
+            int end = r * colnum + colnum - 1;
+            for (int c = colnum - 1; c >= 0; c--) {
+                int cell = r * colnum + c;
+                if (isPillar(cell)) {
+                    end = cell - 1;
+                } else {
+                    right[cell] = end;
+                }
+            }
+        }
+        for (int c = 0; c < colnum; c++) {
+            int start = c;
+            for (int r = 0; r < rownum; r++) {
+                int cell = r * colnum + c;
+                if (isPillar(cell)) {
+                    start = cell + colnum;
+                } else {
+                    top[cell] = start;
+                }
+            }
+            int end = (rownum - 1) * colnum + c;
+            for (int r = rownum - 1; r >= 0; r--) {
+                int cell = r * colnum + c;
+                if (isPillar(cell)) {
+                    end = cell - colnum;
+                } else {
+                    bottom[cell] = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Places a laser on an empty cell, lighting its row and column segments
+     * and updating the counts of the pillars around it.
+     *
+     * @param cell the cell to place the laser on
+     */
+    public void placeLaser(int cell) {
+        if (isDead(cell)) {
+            dead--;
+        }
+        set(lasers, cell);
+        conflicts += cover[cell];
+        if (cover[cell] == 0) {
+            dark--;
+            if (!get(blocked, cell)) {
+                countFree(cell, -1);
+            }
+        }
+        for (int i = left[cell]; i <= right[cell]; i++) {
+            if (i != cell) {
+                light(i);
+            }
+        }
+        for (int i = top[cell]; i <= bottom[cell]; i += colnum) {
+            if (i != cell) {
+                light(i);
+            }
+        }
+        countNeighbors(cell, 1);
+    }
+
+    /**
+     * Removes a laser, undoing everything placeLaser did.
+     *
+     * @param cell the cell holding the laser
+     */
+    public void removeLaser(int cell) {
+        clear(lasers, cell);
+        conflicts -= cover[cell];
+        if (isDead(cell)) {
+            dead++;
+        }
+        if (cover[cell] == 0) {
+            dark++;
+            if (!get(blocked, cell)) {
+                countFree(cell, 1);
+            }
+        }
+        for (int i = left[cell]; i <= right[cell]; i++) {
+            if (i != cell) {
+                darken(i);
+            }
+        }
+        for (int i = top[cell]; i <= bottom[cell]; i += colnum) {
+            if (i != cell) {
+                darken(i);
+            }
+        }
+        countNeighbors(cell, -1);
+    }
+
+    /**
+     * Places a laser on an undecided cell and records it on the trail.
+     *
+     * @param cell the cell to place the laser on
+     */
+    public void assignLaser(int cell) {
+        placeLaser(cell);
+        trail[trailSize++] = cell << 1;
+    }
+
+    /**
+     * Decides that an undecided cell will not hold a laser and records it
+     * on the trail.
+     *
+     * @param cell the cell to leave empty
+     */
+    public void assignEmpty(int cell) {
+        boolean free = isFree(cell);
+        set(blocked, cell);
+        if (isDead(cell)) {
+            dead++;
+        }
+        if (free) {
+            countFree(cell, -1);
+        }
+        trail[trailSize++] = (cell << 1) | 1;
+    }
+
+    /**
+     * Returns the number of decisions on the trail, to be handed back to
+     * undoTo() later.
+     *
+     * @return int
+     */
+    public int getTrailSize() {
+        return trailSize;
+    }
+
+    /**
+     * Undoes decisions, most recent first, until only the given number
+     * are left on the trail.
+     *
+     * @param size the trail size to go back to
+     */
+    public void undoTo(int size) {
+        while (trailSize > size) {
+            int entry = trail[--trailSize];
+            int cell = entry >>> 1;
+            if ((entry & 1) == 0) {
+                removeLaser(cell);
+            } else {
+                if (isDead(cell)) {
+                    dead--;
+                }
+                clear(blocked, cell);
+                if (isFree(cell)) {
+                    countFree(cell, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks at every pillar and dark cell and draws every conclusion that
+     * follows from them. Used once before a search starts.
+     *
+     * @return false if the board turned out to have no solution
+     */
+    public boolean propagateAll() {
+        for (int cell = 0; cell < size(); cell++) {
+            if (need[cell] >= 0 || isDark(cell)) {
+                enqueue(cell);
+            }
+        }
+        return propagate();
+    }
+
+    /**
+     * Draws every conclusion that follows from the most recent decision on
+     * the trail, adding them to the trail as well.
+     *
+     * @return false if the board turned out to have no solution
+     */
+    public boolean propagateLast() {
+        if (trailSize > 0) {
+            int entry = trail[trailSize - 1];
+            if ((entry & 1) == 0) {
+                touchLaser(entry >>> 1);
+            } else {
+                touch(entry >>> 1);
+            }
+        }
+        return propagate();
+    }
+
+    /**
+     * Works through the queue until nothing more can be concluded.
+     *
+     * @return false if the board turned out to have no solution
+     */
+    private boolean propagate() {
+        while (queueSize > 0) {
+            int cell = queue[queueHead];
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+            clear(queued, cell);
+            boolean ok = need[cell] >= 0 ? examinePillar(cell) : examineDark(cell);
+            if (!ok || !isValid()) {
+                while (queueSize > 0) {
+                    clear(queued, queue[queueHead]);
+                    queueHead = (queueHead + 1) % queue.length;
+                    queueSize--;
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the pillar rules to a numbered pillar.
+     *
+     * @param cell the pillar
+     * @return false if the pillar can no longer get the right number of lasers
+     */
+    private boolean examinePillar(int cell) {
+        int missing = need[cell] - adjacent[cell];
+        int count = neighbors(cell, around);
+        int free = 0;
+        for (int i = 0; i < count; i++) {
+            if (isFree(around[i])) {
+                free++;
+            }
+        }
+        if (missing > free) {
+            return false;
+        }
+        if (free == 0 || (missing != 0 && missing != free)) {
+            return true;
+        }
+        for (int i = 0; i < count; i++) {
+            int n = around[i];
+            if (isFree(n)) {
+                if (missing == 0) {
+                    assignEmpty(n);
+                    touch(n);
+                } else {
+                    assignLaser(n);
+                    touchLaser(n);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the lighting rule to a cell: a dark cell needs at least one
+     * free cell in its segments, and gets a laser if only one is left.
+     *
+     * @param cell the cell
+     * @return false if the cell is dark and nothing can light it any more
+     */
+    private boolean examineDark(int cell) {
+        if (!isDark(cell)) {
+            return true;
+        }
+        int count = getSources(cell);
+        if (count != 1) {
+            return count > 0;
+        }
+        int source = -1;
+        for (int i = left[cell]; i <= right[cell]; i++) {
+            if (isFree(i)) {
+                source = i;
+            }
+        }
+        for (int i = top[cell]; i <= bottom[cell]; i += colnum) {
+            if (isFree(i)) {
+                source = i;
+            }
+        }
+        assignLaser(source);
+        touchLaser(source);
+        return true;
+    }
+
+    /**
+     * Queues whatever may be affected by a cell no longer being free: the
+     * pillars next to it and the dark cells that it could have lit.
+     *
+     * @param cell the cell
+     */
+    private void touch(int cell) {
+        int r = cell / colnum;
+        int c = cell % colnum;
+        if (c > 0) {
+            enqueuePillar(cell - 1);
+        }
+        if (c < colnum - 1) {
+            enqueuePillar(cell + 1);
+        }
+        if (r > 0) {
+            enqueuePillar(cell - colnum);
+        }
+        if (r < rownum - 1) {
+            enqueuePillar(cell + colnum);
+        }
+        for (int i = left[cell]; i <= right[cell]; i++) {
+            if (isDark(i)) {
+                enqueue(i);
+            }
+        }
+        for (int i = top[cell]; i <= bottom[cell]; i += colnum) {
+            if (isDark(i)) {
+                enqueue(i);
+            }
+        }
+    }
+
+    /**
+     * Queues whatever may be affected by a new laser: everything touched by
+     * the laser's cell and by each cell its beams have just lit.
+     *
+     * @param cell the laser
+     */
+    private void touchLaser(int cell) {
+        touch(cell);
+        for (int i = left[cell]; i <= right[cell]; i++) {
+            if (cover[i] == 1 && i != cell) {
+                touch(i);
+            }
+        }
+        for (int i = top[cell]; i <= bottom[cell]; i += colnum) {
+            if (cover[i] == 1 && i != cell) {
+                touch(i);
+            }
+        }
+    }
+
+    /**
+     * Queues a cell if it is a numbered pillar.
+     *
+     * @param cell the cell
+     */
+    private void enqueuePillar(int cell) {
+        if (need[cell] >= 0) {
+            enqueue(cell);
+        }
+    }
+
+    /**
+     * Adds a cell to the queue unless it is already waiting there.
+     *
+     * @param cell the cell
+     */
+    private void enqueue(int cell) {
+        if (queue == null) {
+            queue = new int[size()];
+            queued = new long[lasers.length];
+        }
+        if (!get(queued, cell)) {
+            set(queued, cell);
+            queue[(queueHead + queueSize) % queue.length] = cell;
+            queueSize++;
+        }
+    }
+
+    /**
+     * Adds one beam to a cell.
+     *
+     * @param cell the cell
+     */
+    private void light(int cell) {
+        if (cover[cell]++ == 0) {
+            if (isDead(cell)) {
+                dead--;
+            }
+            set(lit, cell);
+            if (!isLaser(cell)) {
+                dark--;
+                if (!get(blocked, cell)) {
+                    countFree(cell, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes one beam from a cell.
+     *
+     * @param cell the cell
+     */
+    private void darken(int cell) {
+        if (--cover[cell] == 0) {
+            clear(lit, cell);
+            if (isDead(cell)) {
+                dead++;
+            }
+            if (!isLaser(cell)) {
+                dark++;
+                if (!get(blocked, cell)) {
+                    countFree(cell, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adjusts the free counts of both segments of a cell that has just
+     * become free or stopped being free.
+     *
+     * @param cell  the cell
+     * @param delta 1 if it became free, -1 if not
+     */
+    private void countFree(int cell, int delta) {
+        int row = left[cell];
+        if (rowFree[row] == (delta < 0 ? 1 : 0)) {
+            countDead(row, right[cell], 1, -1);
+            rowFree[row] += delta;
+            countDead(row, right[cell], 1, 1);
+        } else {
+            rowFree[row] += delta;
+        }
+        int column = top[cell];
+        if (colFree[column] == (delta < 0 ? 1 : 0)) {
+            countDead(column, bottom[cell], colnum, -1);
+            colFree[column] += delta;
+            countDead(column, bottom[cell], colnum, 1);
+        } else {
+            colFree[column] += delta;
+        }
+    }
+
+    /**
+     * Adds or takes away the dead cells of a segment from the dead count.
+     * Only needed when the segment's free count goes to or from zero.
+     *
+     * @param first the first cell of the segment
+     * @param last  the last cell of the segment
+     * @param step  1 for a row segment, colnum for a column segment
+     * @param sign  1 to add, -1 to take away
+     */
+    private void countDead(int first, int last, int step, int sign) {
+        for (int i = first; i <= last; i += step) {
+            if (isDead(i)) {
+                dead += sign;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the cell is dark and no free cell is left that could
+     * light it.
+     *
+     * @param cell the cell
+     * @return boolean
+     */
+    private boolean isDead(int cell) {
+        return isDark(cell) && !isFree(cell) && rowFree[left[cell]] == 0 && colFree[top[cell]] == 0;
+    }
+
+    /**
+     * Adjusts the laser count of the numbered pillars next to a cell.
+     *
+     * @param cell  the cell a laser was placed on or removed from
+     * @param delta 1 when placing, -1 when removing
+     */
+    private void countNeighbors(int cell, int delta) {
+        int r = cell / colnum;
+        int c = cell % colnum;
+        if (c > 0) {
+            countPillar(cell - 1, delta);
+        }
+        if (c < colnum - 1) {
+            countPillar(cell + 1, delta);
+        }
+        if (r > 0) {
+            countPillar(cell - colnum, delta);
+        }
+        if (r < rownum - 1) {
+            countPillar(cell + colnum, delta);
+        }
+    }
+
+    /**
+     * Adjusts the laser count of a single pillar, keeping the overfull and
+     * unmet totals in step.
+     *
+     * @param cell  the neighbouring cell
+     * @param delta 1 when placing, -1 when removing
+     */
+    private void countPillar(int cell, int delta) {
+        int n = need[cell];
+        if (n < 0) {
+            return;
+        }
+        int before = adjacent[cell];
+        int after = before + delta;
+        adjacent[cell] = after;
+        if (before > n) {
+            overfull--;
+        }
+        if (after > n) {
+            overfull++;
+        }
+        if (before != n) {
+            unmet--;
+        }
+        if (after != n) {
+            unmet++;
+        }
+    }
+
+    /**
+     * A board is valid when no two lasers see each other, no pillar has
+     * more lasers around it than its number allows, and every dark cell
+     * still has a free cell left that could light it.
+     *
+     * @return boolean
+     */
+    public boolean isValid() {
+        return conflicts == 0 && overfull == 0 && dead == 0;
+    }
+
+    /**
+     * A board is a goal when it is valid, every pillar count is exact and
+     * every cell is either a pillar, a laser or lit by a beam.
+     *
+     * @return boolean
+     */
+    public boolean isGoal() {
+        return conflicts == 0 && unmet == 0 && dark == 0;
+    }
+
+    /**
+     * Returns the safe as a grid indexed [col][row].
+     *
+     * @param beams whether lit cells should be drawn as beams
+     * @return char[][]
+     */
+    public char[][] toGrid(boolean beams) {
+        char[][] grid = new char[colnum][rownum];
+        for (int r = 0; r < rownum; r++) {
+            for (int c = 0; c < colnum; c++) {
+                int cell = r * colnum + c;
+                if (isPillar(cell)) {
+                    grid[c][r] = need[cell] < 0 ? SafeConfig.XPILLAR : Character.forDigit(need[cell], 10);
+                } else if (isLaser(cell)) {
+                    grid[c][r] = SafeConfig.LASER;
+                } else if (beams && isLit(cell)) {
+                    grid[c][r] = SafeConfig.BEAM;
+                } else {
+                    grid[c][r] = SafeConfig.EMPTY;
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the number of rows in the safe.
+     * @return int
+     */
+    public int getRownum() {
+        return rownum;
+    }
+
+    /**
+     * Returns the number of columns in the safe.
+     * @return int
+     */
+    public int getColnum() {
+        return colnum;
+    }
+
+    /**
+     * Returns the number of cells in the safe.
+     * @return int
+     */
+    public int size() {
+        return rownum * colnum;
+    }
+
+    /**
+     * Returns true if the cell is a pillar.
+     * @param cell the cell
+     * @return boolean
+     */
+    public boolean isPillar(int cell) {
+        return get(pillars, cell);
+    }
+
+    /**
+     * Returns true if the cell holds a laser.
+     * @param cell the cell
+     * @return boolean
+     */
+    public boolean isLaser(int cell) {
+        return get(lasers, cell);
+    }
+
+    /**
+     * Returns the number of free cells next to a cell.
+     * @param cell the cell
+     * @return int
+     */
+    public int freeNeighbors(int cell) {
+        int count = neighbors(cell, around);
+        int free = 0;
+        for (int i = 0; i < count; i++) {
+            if (isFree(around[i])) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Returns the first free cell next to a cell.
+     * @param cell the cell
+     * @return the neighbour, or -1 if none is free
+     */
+    public int firstFreeNeighbor(int cell) {
+        int count = neighbors(cell, around);
+        for (int i = 0; i < count; i++) {
+            if (isFree(around[i])) {
+                return around[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fills in the cells next to a cell, up to four of them.
+     * @param cell   the cell
+     * @param around where to put the neighbours
+     * @return the number of neighbours
+     */
+    public int neighbors(int cell, int[] around) {
+        int r = cell / colnum;
+        int c = cell % colnum;
+        int count = 0;
+        if (c > 0) {
+            around[count++] = cell - 1;
+        }
+        if (c < colnum - 1) {
+            around[count++] = cell + 1;
+        }
+        if (r > 0) {
+            around[count++] = cell - colnum;
+        }
+        if (r < rownum - 1) {
+            around[count++] = cell + colnum;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first cell of the row segment the cell is in.
+     * @param cell a non-pillar cell
+     * @return int
+     */
+    public int getLeft(int cell) {
+        return left[cell];
+    }
+
+    /**
+     * Returns the last cell of the row segment the cell is in.
+     * @param cell a non-pillar cell
+     * @return int
+     */
+    public int getRight(int cell) {
+        return right[cell];
+    }
+
+    /**
+     * Returns the first cell of the column segment the cell is in.
+     * @param cell a non-pillar cell
+     * @return int
+     */
+    public int getTop(int cell) {
+        return top[cell];
+    }
+
+    /**
+     * Returns the last cell of the column segment the cell is in.
+     * @param cell a non-pillar cell
+     * @return int
+     */
+    public int getBottom(int cell) {
+        return bottom[cell];
+    }
+
+    /**
+     * Returns true if a beam reaches the cell.
+     * @param cell the cell
+     * @return boolean
+     */
+    public boolean isLit(int cell) {
+        return get(lit, cell);
+    }
+
+    /**
+     * Returns true if the cell is a pillar, holds a laser or has been
+     * decided to stay empty.
+     * @param cell the cell
+     * @return boolean
+     */
+    public boolean isDecided(int cell) {
+        return get(pillars, cell) || get(lasers, cell) || get(blocked, cell);
+    }
+
+    /**
+     * Returns true if a laser could still be placed on the cell: it is not
+     * decided and no beam reaches it.
+     * @param cell the cell
+     * @return boolean
+     */
+    public boolean isFree(int cell) {
+        return !isDecided(cell) && !get(lit, cell);
+    }
+
+    /**
+     * Returns true if the cell still needs to be lit: it is not a pillar,
+     * holds no laser and no beam reaches it.
+     * @param cell the cell
+     * @return boolean
+     */
+    public boolean isDark(int cell) {
+        return !get(pillars, cell) && !get(lasers, cell) && !get(lit, cell);
+    }
+
+    /**
+     * Returns the number of free cells that a laser could still be placed
+     * on to light the cell, counting the cell itself.
+     * @param cell a non-pillar cell
+     * @return int
+     */
+    public int getSources(int cell) {
+        int sources = rowFree[left[cell]] + colFree[top[cell]];
+        return isFree(cell) ? sources - 1 : sources;
+    }
+
+    /**
+     * Returns the number of lasers whose beam reaches the cell.
+     * @param cell the cell
+     * @return int
+     */
+    public int getCover(int cell) {
+        return cover[cell];
+    }
+
+    /**
+     * Returns the number of a numbered pillar, or -1 for any other cell.
+     * @param cell the cell
+     * @return int
+     */
+    public int getNeed(int cell) {
+        return need[cell];
+    }
+
+    /**
+     * Returns the number of lasers next to a pillar.
+     * @param cell the pillar cell
+     * @return int
+     */
+    public int getAdjacent(int cell) {
+        return adjacent[cell];
+    }
+
+    /**
+     * Returns the first free cell.
+     * @return int, or size() if no cell is free
+     */
+    public int firstFree() {
+        for (int w = 0; w < lasers.length; w++) {
+            long free = ~(pillars[w] | lasers[w] | blocked[w] | lit[w]);
+            if (free != 0) {
+                return Math.min(size(), (w << 6) + Long.numberOfTrailingZeros(free));
+            }
+        }
+        return size();
+    }
+
+    /**
+     * Copies one 64-cell word of the board's bitsets, for hashing whole
+     * stretches of the board at once. Bit i of word w is cell 64w + i.
+     *
+     * @param w    the word
+     * @param into where to put the pillars, the lasers, the lit cells and
+     *             the cells decided to stay empty that are not lit, in that
+     *             order
+     */
+    void words(int w, long[] into) {
+        into[0] = pillars[w];
+        into[1] = lasers[w];
+        into[2] = lit[w];
+        into[3] = blocked[w] & ~lit[w];
+    }
+
+    /**
+     * Returns the number of 64-cell words in the board's bitsets.
+     * @return int
+     */
+    int wordCount() {
+        return lasers.length;
+    }
+
+    /**
+     * Returns the number of numbered pillars whose laser count differs from
+     * their number.
+     * @return int
+     */
+    int getUnmet() {
+        return unmet;
+    }
+
+    /**
+     * Returns the number of non-pillar cells that hold no laser and are
+     * not reached by a beam.
+     * @return int
+     */
+    public int getDark() {
+        return dark;
+    }
+
+    /**
+     * Returns true if the bit for the cell is set.
+     * @param bits the bitset
+     * @param cell the cell
+     * @return boolean
+     */
+    static boolean get(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Sets the bit for the cell.
+     * @param bits the bitset
+     * @param cell the cell
+     */
+    static void set(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Clears the bit for the cell.
+     * @param bits the bitset
+     * @param cell the cell
+     */
+    static void clear(long[] bits, int cell) {
+        bits[cell >>> 6] &= ~(1L << cell);
+    }
+}
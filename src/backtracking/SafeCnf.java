@@ -0,0 +1,312 @@
+package backtracking;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A safe written as a boolean formula in conjunctive normal form, for a
+ * SAT solver.
+ *
+ * There is one variable for every cell that could still hold a laser,
+ * true when it does. The clauses say:
+ * <ul>
+ *     <li>every dark cell has a laser somewhere in its row or column
+ *     segment</li>
+ *     <li>each segment has at most one laser, pair by pair for short
+ *     segments and through a chain of extra variables for long ones; a
+ *     segment already holding two lasers gets the empty clause</li>
+ *     <li>each numbered pillar has exactly as many lasers next to it as it
+ *     still needs, by ruling out every set of neighbours one too large to
+ *     be all lasers or all empty</li>
+ * </ul>
+ * Variables and literals follow the DIMACS convention: variables are
+ * numbered from 1, and -v stands for not v. The formula can be written
+ * out in DIMACS format to be checked with other solvers.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeCnf {
+
+    /** Segments longer than this use extra variables for at most one laser.*/
+    private static final int PAIRWISE_LIMIT = 6;
+
+    /** The board the formula was made from.*/
+    private final SafeBoard board;
+
+    /** The variable of each cell, 0 for cells that cannot hold a laser.*/
+    private final int[] variable;
+
+    /** The cell of each variable, -1 for the extra ones.*/
+    private int[] cellOf;
+
+    /** The number of variables.*/
+    private int variables;
+
+    /** The clauses.*/
+    private final List<int[]> clauses = new ArrayList<>();
+
+    /**
+     * Writes a safe as a formula.
+     *
+     * @param board the safe, with any lasers already placed and cells
+     *              decided to stay empty; it is not modified
+     */
+    public SafeCnf(SafeBoard board) {
+        this.board = new SafeBoard(board);
+        int size = board.size();
+        this.variable = new int[size];
+        this.cellOf = new int[size + 1];
+        for (int cell = 0; cell < size; cell++) {
+            if (board.isFree(cell)) {
+                variable[cell] = newVariable(cell);
+            }
+        }
+
+        int colnum = board.getColnum();
+        for (int cell = 0; cell < size; cell++) {
+            if (board.isDark(cell)) {
+                List<Integer> lighting = new ArrayList<>();
+                for (int i = board.getLeft(cell); i <= board.getRight(cell); i++) {
+                    if (variable[i] != 0) {
+                        lighting.add(variable[i]);
+                    }
+                }
+                for (int i = board.getTop(cell); i <= board.getBottom(cell); i += colnum) {
+                    if (i != cell && variable[i] != 0) {
+                        lighting.add(variable[i]);
+                    }
+                }
+                clauses.add(toArray(lighting));
+            }
+            if (board.getLeft(cell) == cell && !board.isPillar(cell)) {
+                List<Integer> segment = new ArrayList<>();
+                int placed = 0;
+                for (int i = cell; i <= board.getRight(cell); i++) {
+                    if (variable[i] != 0) {
+                        segment.add(variable[i]);
+                    } else if (board.isLaser(i)) {
+                        placed++;
+                    }
+                }
+                segment(toArray(segment), placed);
+            }
+            if (board.getTop(cell) == cell && !board.isPillar(cell)) {
+                List<Integer> segment = new ArrayList<>();
+                int placed = 0;
+                for (int i = cell; i <= board.getBottom(cell); i += colnum) {
+                    if (variable[i] != 0) {
+                        segment.add(variable[i]);
+                    } else if (board.isLaser(i)) {
+                        placed++;
+                    }
+                }
+                segment(toArray(segment), placed);
+            }
+        }
+
+        int[] around = new int[4];
+        for (int cell = 0; cell < size; cell++) {
+            if (board.getNeed(cell) < 0) {
+                continue;
+            }
+            List<Integer> free = new ArrayList<>();
+            int n = board.neighbors(cell, around);
+            for (int i = 0; i < n; i++) {
+                if (variable[around[i]] != 0) {
+                    free.add(variable[around[i]]);
+                }
+            }
+            int missing = board.getNeed(cell) - board.getAdjacent(cell);
+            if (missing < 0 || missing > free.size()) {
+                clauses.add(new int[0]);
+                continue;
+            }
+            // no missing + 1 of them all lasers, no free - missing + 1 of them all empty
+            subsets(toArray(free), missing + 1, -1);
+            subsets(toArray(free), free.size() - missing + 1, 1);
+        }
+    }
+
+    /**
+     * Returns the number of variables.
+     * @return int
+     */
+    public int getVariables() {
+        return variables;
+    }
+
+    /**
+     * Returns the clauses, each an array of literals. The list must not be
+     * changed.
+     * @return List of int[]
+     */
+    public List<int[]> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * Turns a satisfying assignment back into a safe.
+     *
+     * @param model the value of each variable, indexed from 1
+     * @return The solved safe
+     */
+    public SafeConfig solution(boolean[] model) {
+        SafeBoard solved = new SafeBoard(board);
+        for (int v = 1; v <= variables; v++) {
+            if (model[v] && cellOf[v] >= 0) {
+                solved.placeLaser(cellOf[v]);
+            }
+        }
+        return new SafeConfig(solved);
+    }
+
+    /**
+     * Writes the formula in DIMACS format, with a comment line giving the
+     * row and column of each cell's variable.
+     *
+     * @param out where to write it; it is flushed but not closed
+     */
+    public void write(Writer out) {
+        PrintWriter printer = new PrintWriter(out);
+        printer.println("c safe " + board.getRownum() + " " + board.getColnum());
+        for (int v = 1; v <= variables; v++) {
+            if (cellOf[v] >= 0) {
+                printer.println("c cell " + cellOf[v] / board.getColnum() + " " + cellOf[v] % board.getColnum()
+                        + " is " + v);
+            }
+        }
+        printer.println("p cnf " + variables + " " + clauses.size());
+        for (int[] clause : clauses) {
+            StringBuilder line = new StringBuilder();
+            for (int literal : clause) {
+                line.append(literal).append(' ');
+            }
+            printer.println(line.append('0'));
+        }
+        printer.flush();
+    }
+
+    /**
+     * Writes the formula in DIMACS format to a file, replacing any file of
+     * the same name.
+     *
+     * @param filename The file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String filename) throws IOException {
+        try (Writer out = Files.newBufferedWriter(Paths.get(filename))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Adds a variable.
+     *
+     * @param cell the cell it stands for, or -1 for an extra one
+     * @return the variable
+     */
+    private int newVariable(int cell) {
+        variables++;
+        if (variables == cellOf.length) {
+            cellOf = Arrays.copyOf(cellOf, cellOf.length * 2);
+        }
+        cellOf[variables] = cell;
+        return variables;
+    }
+
+    /**
+     * Adds clauses allowing at most one laser in a segment.
+     *
+     * @param vars   the variables of the segment's free cells
+     * @param placed the number of lasers already in it
+     */
+    private void segment(int[] vars, int placed) {
+        if (placed > 1) {
+            clauses.add(new int[0]);
+        } else if (placed == 1) {
+            for (int v : vars) {
+                clauses.add(new int[]{-v});
+            }
+        } else {
+            atMostOne(vars);
+        }
+    }
+
+    /**
+     * Adds clauses allowing at most one of some variables to be true.
+     *
+     * @param vars the variables
+     */
+    private void atMostOne(int[] vars) {
+        if (vars.length <= PAIRWISE_LIMIT) {
+            for (int i = 0; i < vars.length; i++) {
+                for (int j = i + 1; j < vars.length; j++) {
+                    clauses.add(new int[]{-vars[i], -vars[j]});
+                }
+            }
+            return;
+        }
+        // seen[i] is true once any of the first i + 1 variables is
+        int previous = 0;
+        for (int i = 0; i < vars.length; i++) {
+            if (i > 0) {
+                clauses.add(new int[]{-vars[i], -previous});
+            }
+            if (i < vars.length - 1) {
+                int seen = newVariable(-1);
+                clauses.add(new int[]{-vars[i], seen});
+                if (i > 0) {
+                    clauses.add(new int[]{-previous, seen});
+                }
+                previous = seen;
+            }
+        }
+    }
+
+    /**
+     * Adds a clause for every subset of some variables of a given size,
+     * saying they are not all true (sign -1) or not all false (sign 1).
+     *
+     * @param vars the variables
+     * @param k    the size of the subsets
+     * @param sign -1 or 1
+     */
+    private void subsets(int[] vars, int k, int sign) {
+        if (k > vars.length) {
+            return;
+        }
+        for (int mask = 0; mask < 1 << vars.length; mask++) {
+            if (Integer.bitCount(mask) == k) {
+                int[] clause = new int[k];
+                int n = 0;
+                for (int i = 0; i < vars.length; i++) {
+                    if ((mask & 1 << i) != 0) {
+                        clause[n++] = sign * vars[i];
+                    }
+                }
+                clauses.add(clause);
+            }
+        }
+    }
+
+    /**
+     * Copies a list of variables into an array.
+     *
+     * @param list the variables
+     * @return int[]
+     */
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -1,28 +1,39 @@
 package backtracking;
 
-import javafx.geometry.Insets;
-
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Scanner;
 
 /**
  * The class represents a single configuration of a safe.  It is
  * used by the backtracker to generate successors, check for
  * validity, and eventually find the goal.
  *
- * This class is given to you here, but it will undoubtedly need to
- * communicate with the model.  You are free to move it into the model
- * package and/or incorporate it into another class.
+ * The safe itself is held in a SafeBoard, which keeps the beam coverage
+ * and pillar counts up to date as lasers are placed, so validity and
+ * goal checks do not need to rebuild the grid.
+ *
+ * Besides handing out copies through getSuccessors(), a SafeConfig can
+ * be searched in place: each decision places a laser on the next
+ * undecided cell or leaves it empty, and undo() takes it back through
+ * the board's trail.
+ *
+ * Unless it is turned off, every decision is followed by constraint
+ * propagation on the board, and propagate() runs it over the whole safe
+ * before a search starts. Which cell is decided next is up to a
+ * pluggable CellOrder.
+ *
+ * An in-place search can also be given a NogoodTable. Each level records
+ * the frontier it was opened at, and once all of its options have been
+ * tried without reaching a goal, the frontier is stored as having no
+ * solution; a level whose frontier is already stored is not searched.
  *
  * @author Sean Strout @ RIT CS
  * @author Alex Williams
  * @author Jethro Masangya
  */
-public class SafeConfig implements Configuration {
-    private char[][] Safe;
+public class SafeConfig implements MutableConfiguration {
+    private SafeBoard board;
 
     public final static char EMPTY = '.';
     public final static char LASER = 'L';
@@ -35,35 +46,74 @@ public class SafeConfig implements Configuration {
     public int R;
     public int C;
 
-    public SafeConfig(String filename) throws FileNotFoundException {
-        Scanner in = new Scanner(new File(filename));
+    /** The cell chosen at each level of an in-place search.*/
+    private int[] levelCell;
 
-        String[] line = in.nextLine().split(" ");
-        this.rownum = Integer.parseInt(line[0]);
-        this.colnum = Integer.parseInt(line[1]);
+    /** The board's trail size before each level's decision was applied.*/
+    private int[] levelMark;
 
-        this.Safe = new char[colnum][rownum];
+    /** The number of decisions applied by the in-place search.*/
+    private int level;
 
-        for (int i = 0; i < rownum; i++) {
-            char[] row = in.nextLine().replaceAll(" ", "").toCharArray();
-            for (int k = 0; k < colnum; k++) {
-                Safe[k][i] = row[k];
-            }
-        }
-        in.close();
+    /** Whether decisions are followed by constraint propagation.*/
+    private boolean propagation = true;
+
+    /** Picks the cell each level of an in-place search decides.*/
+    private CellOrder order = new RowMajorOrder();
+
+    /** Frontiers known to have no solution, or null to not keep track of them.*/
+    private NogoodTable nogoods;
+
+    /** The frontier each open level was chosen at, for the nogood table.*/
+    private long[] levelKey;
+
+    /** The number of options of each level, and the number applied so far.*/
+    private int[] levelOptions, levelTried;
+
+    /** The number of goals reached before each level was opened, or its option applied.*/
+    private int[] levelGoals, appliedGoals;
+
+    /** Whether each level is open, and whether everything under it was searched to the end.*/
+    private boolean[] levelOpen, levelComplete;
+
+    /** Whether each level's applied option left the configuration valid.*/
+    private boolean[] appliedValid;
+
+    /** The number of goals the in-place search has reached.*/
+    private int goals;
+
+    /** Scratch space for working out frontiers.*/
+    private long[] scratch;
+
+    public SafeConfig(String filename) throws FileNotFoundException {
+        char[][] safe = SafeParser.read(filename);
+        this.rownum = safe[0].length;
+        this.colnum = safe.length;
+        this.board = new SafeBoard(safe, rownum, colnum);
+    }
+
+    /**
+     * Creates a configuration around an existing board, which it takes
+     * ownership of.
+     * @param board the board
+     */
+    public SafeConfig(SafeBoard board){
+        this.board = board;
+        this.rownum = board.getRownum();
+        this.colnum = board.getColnum();
     }
 
     public SafeConfig(SafeConfig other){
-        this.Safe = new char[other.colnum][other.rownum];
+        this.board = new SafeBoard(other.board);
         this.rownum = other.rownum;
         this.colnum = other.colnum;
         this.R = other.R;
         this.C = other.C;
-            for(int i = 0; i < rownum; i++){
-                for(int c = 0; c < colnum; c++){
-                    this.Safe[c][i] = other.getSafe()[c][i];
-                }
-            }
+        this.propagation = other.propagation;
+        this.order = other.order;
+        // the level arrays are left for the copy's first choose(), so copies that are never searched in place
+        // allocate nothing for the table
+        this.nogoods = other.nogoods;
     }
 
 
@@ -78,23 +128,171 @@ public class SafeConfig implements Configuration {
             return successors;
         }
         C++;
-        if (Safe[C][R] == XPILLAR || isInteger(Safe[C][R])){
+        int cell = R * colnum + C;
+        if (!board.isFree(cell)){
             SafeConfig pillarConfig = new SafeConfig(this);
             successors.add(pillarConfig);
             return successors;
         }
         SafeConfig laserConfig = new SafeConfig(this);
-        laserConfig.addLaser(laserConfig.R, laserConfig.C);
-        if(laserConfig.isValid()){
+        laserConfig.board.assignLaser(cell);
+        if(laserConfig.settle()){
             successors.add(laserConfig);
         }
         SafeConfig emptyConfig = new SafeConfig(this);
-        if(emptyConfig.isValid()){
+        emptyConfig.board.assignEmpty(cell);
+        if(emptyConfig.settle()){
             successors.add(emptyConfig);
         }
         return successors;
     }
 
+    @Override
+    public int choose() {
+        if (levelCell == null) {
+            levelCell = new int[board.size() + 1];
+            levelMark = new int[board.size() + 1];
+        }
+        if (nogoods != null && levelKey == null) {
+            int size = board.size() + 1;
+            levelKey = new long[size];
+            levelOptions = new int[size];
+            levelTried = new int[size];
+            levelGoals = new int[size];
+            appliedGoals = new int[size];
+            levelOpen = new boolean[size];
+            levelComplete = new boolean[size];
+            appliedValid = new boolean[size];
+            scratch = new long[4];
+        }
+        int cell = order.next(board, level == 0 ? 0 : levelCell[level - 1] + 1);
+        int options = cell < 0 ? 0 : 2;
+        if (nogoods != null) {
+            long key = NogoodTable.key(board, scratch);
+            if (nogoods.contains(key)) {
+                options = 0;
+            }
+            levelKey[level] = key;
+            levelOptions[level] = options;
+            levelTried[level] = 0;
+            levelGoals[level] = goals;
+            levelOpen[level] = true;
+            levelComplete[level] = true;
+        }
+        if (options == 0) {
+            return 0;
+        }
+        levelCell[level] = cell;
+        return 2;
+    }
+
+    @Override
+    public boolean apply(int option) {
+        if (nogoods != null) {
+            levelTried[level]++;
+            appliedGoals[level] = goals;
+        }
+        levelMark[level] = board.getTrailSize();
+        if (option == 0) {
+            board.assignLaser(levelCell[level]);
+        } else {
+            board.assignEmpty(levelCell[level]);
+        }
+        level++;
+        boolean valid = settle();
+        if (nogoods != null) {
+            appliedValid[level - 1] = valid;
+        }
+        return valid;
+    }
+
+    @Override
+    public void undo() {
+        if (nogoods != null) {
+            closeLevel();
+        }
+        level--;
+        board.undoTo(levelMark[level]);
+    }
+
+    /**
+     * Called before the option applied at the level below is undone. If a
+     * level was opened under it and every one of its options was searched
+     * to the end without reaching a goal, its frontier is stored in the
+     * nogood table. If the search left it, or the configuration under it,
+     * before finishing, as when it is stopped or times out, the level below
+     * is not finished either.
+     */
+    private void closeLevel() {
+        boolean finished;
+        if (levelOpen[level]) {
+            levelOpen[level] = false;
+            finished = levelTried[level] == levelOptions[level] && levelComplete[level];
+            if (finished && goals == levelGoals[level]) {
+                nogoods.add(levelKey[level]);
+            }
+        } else {
+            // either invalid, a goal, or never looked at
+            finished = !appliedValid[level - 1] || goals != appliedGoals[level - 1];
+        }
+        if (!finished) {
+            levelComplete[level - 1] = false;
+        }
+    }
+
+    /**
+     * Gives an in-place search a table of frontiers known to have no
+     * solution, which it adds to as it finds more. The table must not be
+     * used for any other safe. Set it before the search starts.
+     * @param nogoods the table, or null to stop using one
+     */
+    public void setNogoods(NogoodTable nogoods) {
+        this.nogoods = nogoods;
+    }
+
+    @Override
+    public MutableConfiguration snapshot() {
+        return new SafeConfig(this);
+    }
+
+    /**
+     * Propagates the most recent decision, if propagation is on, and
+     * checks the result.
+     * @return true if the configuration is still valid
+     */
+    private boolean settle() {
+        if (propagation && !board.propagateLast()) {
+            return false;
+        }
+        return board.isValid();
+    }
+
+    /**
+     * Runs constraint propagation over the whole safe. Meant to be called
+     * once before searching; the conclusions it draws are never undone.
+     * @return false if the safe has no solution
+     */
+    public boolean propagate() {
+        return board.propagateAll() && board.isValid();
+    }
+
+    /**
+     * Sets the strategy that picks which cell an in-place search decides
+     * next. The default is row-major order.
+     * @param order the strategy
+     */
+    public void setCellOrder(CellOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Turns constraint propagation after each decision on or off.
+     * @param propagation true to propagate
+     */
+    public void setPropagation(boolean propagation) {
+        this.propagation = propagation;
+    }
+
     /**
      * Checks if the given char is a digit, if it is return true.
      * @param c char
@@ -113,54 +311,17 @@ public class SafeConfig implements Configuration {
 
     @Override
     public boolean isValid() {
-        char[][] currGrid = this.copyWithBeams();
-        for (int r = 0; r < colnum; r++) {
-            for (int c = 0; c < rownum; c++) {
-                char curr = currGrid[r][c];
-                if (curr == LASER) {
-                    if (laserNeighbor(r, c)) {
-                        this.R = r;
-                        this.C = c;
-                        return false;
-                    }
-                    else if (!PillarNeigbor(r,c)){
-                        return false;
-                    }
-                } else if (Character.isDigit(curr)) {
-                    int lasers = countLasers(r, c);
-                    if (lasers > Character.getNumericValue(curr)) {
-                        this.R = r;
-                        this.C = c;
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return board.isValid();
     }
 
     @Override
     public boolean isGoal() {
-        int emptyCount = 0;
-        char[][] currGrid = this.copyWithBeams();
-        for (int c = 0; c < colnum; c++) {
-            for (int r = 0; r < rownum; r++) {
-                char curr = currGrid[c][r];
-                if (curr == EMPTY) {
-                    emptyCount++;
-                }
-                else if(Character.isDigit(curr)){
-                    int lasers = countLasers(c, r);
-                    if (lasers != Character.getNumericValue(curr)){
-                        return false;
-                    }
-                }
-            }
-        }
-        if (emptyCount > 0) {
-            return false;
-        }
-        return true;
+        return board.isGoal();
+    }
+
+    @Override
+    public void goalReached() {
+        goals++;
     }
 
     /**
@@ -170,69 +331,7 @@ public class SafeConfig implements Configuration {
      * @return char[][]
      */
     public char[][] copyWithBeams() {
-        char[][] copy = new char[this.colnum][this.rownum];
-        for (int i = 0; i < colnum; i++) {
-            for (int j = 0; j < rownum; j++) {
-                copy[i][j] = this.Safe[i][j];
-            }
-        }
-
-        for (int i = 0; i < rownum; i++) {
-            for (int j = 0; j < colnum; j++) {
-                char curr = copy[j][i];
-                if (curr == LASER) {
-                    addBeams(i, j, copy);
-                }
-            }
-        }
-        return copy;
-    }
-
-    /**
-     * With a row, column coordinate and a char[][], the method adds beam tiles originating from the
-     * given coordinate.
-     *
-     * @param row  row coordinate
-     * @param col  column coordinate
-     * @param grid 2D array representing the safe
-     */
-    public void addBeams(int row, int col, char[][] grid) {
-        int colChange = 1;
-        while (col + colChange < colnum) {
-            if (grid[col + colChange][row] == EMPTY || grid[col + colChange][row] == BEAM) {
-                grid[col + colChange][row] = BEAM;
-                colChange++;
-            } else {
-                break;
-            }
-        }
-        colChange = 1;
-        while (col - colChange >= 0) {
-            if (grid[col - colChange][row] == EMPTY || grid[col - colChange][row] == BEAM) {
-                grid[col - colChange][row] = BEAM;
-                colChange++;
-            } else {
-                break;
-            }
-        }
-        int rowChange = 1;
-        while (row + rowChange < rownum) {
-            if (grid[col][row + rowChange] == EMPTY || grid[col][row + rowChange] == BEAM) {
-                grid[col][row + rowChange] = BEAM;
-                rowChange++;
-            } else {
-                break;
-            }
-        }
-        rowChange = 1;
-        while (row - rowChange >= 0) {
-            if (grid[col][row - rowChange] == EMPTY || grid[col][row - rowChange] == BEAM) {
-                grid[col][row - rowChange] = BEAM;
-                rowChange++;
-            } else {
-                break;
-            }
-        }
+        return board.toGrid(true);
     }
 
     /**
@@ -243,10 +342,11 @@ public class SafeConfig implements Configuration {
      * @param col The column that the coordinates are pointing to. On an (x,y) coordinate grid, col would refer to the x-value.
      */
     public void addLaser(int row, int col) {
-        if (Safe[col][row] != EMPTY && Safe[col][row] != BEAM) {
+        int cell = row * colnum + col;
+        if (board.isPillar(cell) || board.isLaser(cell)) {
             System.out.println("Error adding laser at: (" + row + ", " + col + ")");
         } else {
-            Safe[col][row] = LASER;
+            board.placeLaser(cell);
         }
     }
 
@@ -258,10 +358,11 @@ public class SafeConfig implements Configuration {
      * @param col The column that the coordinates are pointing to. On an (x,y) coordinate grid, col would refer to the x-value.
      */
     public void removeLaser(int row, int col) {
-        if (Safe[col][row] != LASER) {
+        int cell = row * colnum + col;
+        if (!board.isLaser(cell)) {
             System.out.println("Error removing laser at: (" + row + ", " + col + ")");
         } else {
-            Safe[col][row] = EMPTY;
+            board.removeLaser(cell);
             System.out.println("Laser removed at: (" + row + ", " + col + ")");
         }
     }
@@ -274,40 +375,20 @@ public class SafeConfig implements Configuration {
      * @return The number of lasers
      */
     public int countLasers(int x, int y) {
-        char n1, n2, n3, n4;
-
-        ArrayList<Character> nLst = new ArrayList<Character>();
-        if (x - 1 < 0) {
-            n1 = 0;
-        } else {
-            n1 = Safe[x - 1][y];
+        int cell = y * colnum + x;
+        int LaserCount = 0;
+        if (x - 1 >= 0 && board.isLaser(cell - 1)) {
+            LaserCount++;
         }
-        nLst.add(n1);
-        if (y - 1 < 0) {
-            n2 = 0;
-        } else {
-            n2 = Safe[x][y - 1];
+        if (y - 1 >= 0 && board.isLaser(cell - colnum)) {
+            LaserCount++;
         }
-        nLst.add(n2);
-        if (x + 1 >= colnum) {
-            n3 = 0;
-        } else {
-            n3 = Safe[x + 1][y];
+        if (x + 1 < colnum && board.isLaser(cell + 1)) {
+            LaserCount++;
         }
-        nLst.add(n3);
-        if (y + 1 >= rownum) {
-            n4 = 0;
-        } else {
-            n4 = Safe[x][y + 1];
-        }
-        nLst.add(n4);
-        int LaserCount = 0;
-        for (char i : nLst) {
-            if (i == LASER) {
-                LaserCount++;
-            }
+        if (y + 1 < rownum && board.isLaser(cell + colnum)) {
+            LaserCount++;
         }
-
         return LaserCount;
     }
 
@@ -320,50 +401,7 @@ public class SafeConfig implements Configuration {
      * @return boolean
      */
     public boolean laserNeighbor(int col, int row) {
-        //Checks if there is any lasers left of the coordinate.
-        boolean isPillarLeft = false;
-        for (int i = col - 1; i >= 0; i--) {
-            char curr = Safe[i][row];
-            if (Character.isDigit(curr) || curr == XPILLAR) {
-                isPillarLeft = true;
-            } else if (curr == LASER && !isPillarLeft) {
-                return true;
-            }
-        }
-        //Checks if there is any lasers right of the coordinate
-        boolean isPillarRight = false;
-        for (int i = col + 1; i < colnum; i++) {
-            char curr = Safe[i][row];
-            if (Character.isDigit(curr) || curr == XPILLAR) {
-                isPillarRight = true;
-            } else if (curr == LASER && !isPillarRight) {
-                return true;
-            }
-        }
-
-        //Checks if there is any lasers above of the coordinate
-        boolean isPillarAbove = false;
-        for (int i = row - 1; i >= 0; i--) {
-            char curr = Safe[col][i];
-            if (Character.isDigit(curr) || curr == XPILLAR) {
-                isPillarAbove = true;
-            } else if (curr == LASER && !isPillarAbove) {
-                return true;
-            }
-        }
-
-        //Checks if there is any lasers below of the coordinate
-        boolean isPillarBelow = false;
-        for (int i = row + 1; i < rownum; i++) {
-            char curr = Safe[col][i];
-            if (Character.isDigit(curr) || curr == XPILLAR) {
-                isPillarBelow = true;
-            } else if (curr == LASER && !isPillarBelow) {
-                return true;
-            }
-        }
-        return false;
-
+        return board.getCover(row * colnum + col) > 0;
     }
 
     /**
@@ -416,69 +454,15 @@ public class SafeConfig implements Configuration {
      * @return char[][]
      */
     public char[][] getSafe(){
-        return this.Safe;
+        return board.toGrid(false);
     }
 
     /**
-     * Checks if the coordinate is next to a pillar, if it is return true else false
-     * @param x X coordinate on a grid
-     * @param y Y coordinate on a grid
-     * @return boolean
+     * Returns the bit-packed board behind this configuration.
+     * @return SafeBoard
      */
-    private boolean PillarNeigbor(int x, int y){
-        char n1, n2, n3, n4, n5, n6, n7, n8;
-
-        ArrayList<Character> nLst = new ArrayList<Character>();
-        if (x - 1 < 0) {
-            n1 = 'x';
-        } else {
-            n1 = Safe[x - 1][y];
-        }
-        nLst.add(n1);
-        if (y - 1 < 0) {
-            n2 = 'x';
-        } else {
-            n2 = Safe[x][y - 1];
-        }
-        nLst.add(n2);
-        if (x + 1 >= colnum) {
-            n3 = 'x';
-        } else {
-            n3 = Safe[x + 1][y];
-        }
-        nLst.add(n3);
-        if (y + 1 >= rownum) {
-            n4 = 'x';
-        } else {
-            n4 = Safe[x][y + 1];
-        }
-        nLst.add(n4);
-        if(x - 1 < 0 || y - 1 < 0){
-            n5 = 'x';
-        } else{
-            n5 = Safe[x-1][y-1];}
-        nLst.add(n5);
-        if(x + 1 >= colnum || y - 1 < 0){
-            n6 = 'x';
-        } else{
-            n6 = Safe[x+1][y-1];}
-        nLst.add(n6);
-        if(x + 1 >= colnum || y + 1 >= rownum){
-            n7 = 'x';
-        } else{
-            n7 = Safe[x+1][y+1];}
-        nLst.add(n7);
-        if(x - 1 < 0 || y + 1 >= rownum){
-            n8 = 'x';
-        } else{
-            n8 = Safe[x-1][y+1];}
-        nLst.add(n8);
-        for (char i : nLst) {
-            if(Character.isDigit(i) || i == 'X'){
-                return true;
-            }
-        }
-        return false;
+    public SafeBoard getBoard(){
+        return this.board;
     }
 
 }
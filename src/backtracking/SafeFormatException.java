@@ -0,0 +1,64 @@
+package backtracking;
+
+/**
+ * Thrown when a safe file is not laid out the way SafeParser expects.
+ * The message says where: the file, line and column of the problem.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeFormatException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The line the problem is on, counting from 1.*/
+    private final int line;
+
+    /** The column the problem is at, counting from 1.*/
+    private final int column;
+
+    /**
+     * Creates an exception for a problem at a given place.
+     *
+     * @param source  The name of the file
+     * @param line    The line, counting from 1
+     * @param column  The column, counting from 1
+     * @param message What is wrong
+     */
+    public SafeFormatException(String source, int line, int column, String message) {
+        super(source + ":" + line + ":" + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Creates an exception for a problem that is not at any one line,
+     * such as in a binary file.
+     *
+     * @param source  The name of the file
+     * @param message What is wrong
+     */
+    public SafeFormatException(String source, String message) {
+        super(source + ": " + message);
+        this.line = 0;
+        this.column = 0;
+    }
+
+    /**
+     * Returns the line the problem is on, counting from 1, or 0 if it is
+     * not at any one line.
+     * @return int
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column the problem is at, counting from 1, or 0 if it
+     * is not at any one place.
+     * @return int
+     */
+    public int getColumn() {
+        return column;
+    }
+}
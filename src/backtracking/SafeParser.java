@@ -0,0 +1,323 @@
+package backtracking;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads safe files. A safe is a line giving its number of rows and
+ * columns, followed by one line per row with one character per cell,
+ * optionally separated by spaces: '.' for an empty cell, 'X' for a plain
+ * pillar, '0' to '4' for a numbered pillar and 'L' for a laser.
+ *
+ * A file may hold several safes, one after another, with blank lines
+ * between them. Anything after the last safe that does not start with a
+ * line of exactly two numbers, such as the description and solution at
+ * the end of the bundled safe files, is ignored.
+ *
+ * The file is read straight from its bytes, through a FileChannel, and
+ * large files are memory-mapped rather than copied. Grids are returned
+ * indexed [col][row], like everywhere else.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeParser {
+
+    /** Files at least this big are memory-mapped instead of read.*/
+    private static final long MAP_THRESHOLD = 1 << 16;
+
+    /** The bytes being parsed.*/
+    private final ByteBuffer in;
+
+    /** The name of the file, for error messages.*/
+    private final String source;
+
+    /** Where the next byte to read is.*/
+    private int pos;
+
+    /** The line the next byte is on, counting from 1.*/
+    private int line = 1;
+
+    /** Where the line the next byte is on starts.*/
+    private int lineStart;
+
+    /**
+     * Creates a parser over some bytes.
+     *
+     * @param in     The bytes, from their position to their limit
+     * @param source The name of where they came from, for error messages
+     */
+    public SafeParser(ByteBuffer in, String source) {
+        this.in = in;
+        this.source = source;
+        this.pos = in.position();
+        this.lineStart = pos;
+    }
+
+    /**
+     * Reads the first safe in a file.
+     *
+     * @param filename The file
+     * @return The safe's grid
+     * @throws FileNotFoundException if the file cannot be opened
+     * @throws SafeFormatException   if the file does not start with a safe
+     */
+    public static char[][] read(String filename) throws FileNotFoundException {
+        return new SafeParser(load(filename), filename).next();
+    }
+
+    /**
+     * Reads every safe in a file.
+     *
+     * @param filename The file
+     * @return The safes' grids, in the order they appear
+     * @throws FileNotFoundException if the file cannot be opened
+     * @throws SafeFormatException   if the file does not start with a safe,
+     *                               or one of its safes is malformed
+     */
+    public static List<char[][]> readAll(String filename) throws FileNotFoundException {
+        SafeParser parser = new SafeParser(load(filename), filename);
+        List<char[][]> safes = new ArrayList<>();
+        safes.add(parser.next());
+        while (parser.hasNext()) {
+            safes.add(parser.next());
+        }
+        return safes;
+    }
+
+    /**
+     * Loads a file's bytes, mapping it into memory if it is large.
+     *
+     * @param filename The file
+     * @return The bytes
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    private static ByteBuffer load(String filename) throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return buffer;
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(filename + " (No such file or directory)");
+        } catch (IOException e) {
+            throw new UncheckedIOException(filename, e);
+        }
+    }
+
+    /**
+     * Skips blank lines and checks whether what follows is another safe,
+     * that is, a line of exactly two numbers.
+     *
+     * @return true if there is another safe to read
+     */
+    public boolean hasNext() {
+        skipBlankLines();
+        int p = pos;
+        int numbers = 0;
+        while (p < in.limit() && peekAt(p) != '\n' && peekAt(p) != '\r') {
+            char ch = peekAt(p);
+            if (isDigit(ch)) {
+                numbers++;
+                while (p < in.limit() && isDigit(peekAt(p))) {
+                    p++;
+                }
+            } else if (isSpace(ch)) {
+                p++;
+            } else {
+                return false;
+            }
+        }
+        return numbers == 2;
+    }
+
+    /**
+     * Reads the next safe.
+     *
+     * @return The safe's grid
+     * @throws SafeFormatException if there is no safe here or it is malformed
+     */
+    public char[][] next() {
+        skipBlankLines();
+        int rownum = number("the number of rows");
+        skipSpaces();
+        int colnum = number("the number of columns");
+        endOfLine();
+        // every cell takes at least a character, so a header bigger than what is left is wrong, and is not allocated
+        if ((long) rownum * colnum > in.limit() - pos) {
+            throw error("a " + rownum + " by " + colnum + " safe needs more than the " + (in.limit() - pos)
+                    + " characters left");
+        }
+        char[][] grid = new char[colnum][rownum];
+        for (int r = 0; r < rownum; r++) {
+            if (pos >= in.limit()) {
+                throw error("expected " + rownum + " rows, found " + r);
+            }
+            int c = 0;
+            skipSpaces();
+            while (pos < in.limit() && peek() != '\n' && peek() != '\r') {
+                char ch = peek();
+                if (!isCell(ch)) {
+                    throw error("unexpected '" + ch + "', expected one of . X 0 1 2 3 4 L");
+                }
+                if (c == colnum) {
+                    throw error("row " + r + " has more than " + colnum + " cells");
+                }
+                grid[c++][r] = ch;
+                pos++;
+                skipSpaces();
+            }
+            if (c < colnum) {
+                throw error("row " + r + " has " + c + " cells, expected " + colnum);
+            }
+            endOfLine();
+        }
+        return grid;
+    }
+
+    /**
+     * Reads a positive number.
+     *
+     * @param what What the number is, for error messages
+     * @return The number
+     */
+    private int number(String what) {
+        if (pos >= in.limit() || !isDigit(peek())) {
+            throw error("expected " + what);
+        }
+        long value = 0;
+        while (pos < in.limit() && isDigit(peek())) {
+            value = value * 10 + (peek() - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw error(what + " is too large");
+            }
+            pos++;
+        }
+        if (value == 0) {
+            throw error(what + " must be positive");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Skips trailing spaces and the end of the line, or the end of the file.
+     */
+    private void endOfLine() {
+        skipSpaces();
+        if (pos >= in.limit()) {
+            return;
+        }
+        if (peek() == '\r') {
+            pos++;
+        }
+        if (pos < in.limit() && peek() == '\n') {
+            pos++;
+            line++;
+            lineStart = pos;
+        } else if (pos < in.limit()) {
+            throw error("unexpected '" + peek() + "' at the end of the line");
+        }
+    }
+
+    /**
+     * Skips any lines that hold nothing but spaces.
+     */
+    private void skipBlankLines() {
+        while (true) {
+            int p = pos;
+            while (p < in.limit() && isSpace(peekAt(p))) {
+                p++;
+            }
+            if (p < in.limit() && peekAt(p) == '\r') {
+                p++;
+            }
+            if (p >= in.limit() || peekAt(p) != '\n') {
+                return;
+            }
+            pos = p + 1;
+            line++;
+            lineStart = pos;
+        }
+    }
+
+    /**
+     * Skips spaces and tabs.
+     */
+    private void skipSpaces() {
+        while (pos < in.limit() && isSpace(peek())) {
+            pos++;
+        }
+    }
+
+    /**
+     * Returns the next byte as a character, without moving past it.
+     * @return char
+     */
+    private char peek() {
+        return peekAt(pos);
+    }
+
+    /**
+     * Returns the byte at a given place as a character.
+     *
+     * @param p The place
+     * @return char
+     */
+    private char peekAt(int p) {
+        return (char) (in.get(p) & 0xff);
+    }
+
+    /**
+     * Creates an exception for a problem at the current place.
+     *
+     * @param message What is wrong
+     * @return The exception, for the caller to throw
+     */
+    private SafeFormatException error(String message) {
+        return new SafeFormatException(source, line, pos - lineStart + 1, message);
+    }
+
+    /**
+     * Returns true if a character is a decimal digit.
+     *
+     * @param ch The character
+     * @return boolean
+     */
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Returns true if a character separates cells or numbers.
+     *
+     * @param ch The character
+     * @return boolean
+     */
+    private static boolean isSpace(char ch) {
+        return ch == ' ' || ch == '\t';
+    }
+
+    /**
+     * Returns true if a character may stand for a cell.
+     *
+     * @param ch The character
+     * @return boolean
+     */
+    private static boolean isCell(char ch) {
+        return ch == SafeConfig.EMPTY || ch == SafeConfig.XPILLAR || ch == SafeConfig.LASER || (ch >= '0' && ch <= '4');
+    }
+}
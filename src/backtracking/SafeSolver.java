@@ -1,35 +1,123 @@
 package backtracking;
 
-import java.io.FileNotFoundException;
+import java.io.File;
+import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Thie is the main class for a safe solver.  It runs the backtracking
- * algorithm and displays the solution, if one exists.
+ * algorithm and displays the solution, if one exists.  An optional
+ * third argument gives the number of threads to search with, and an
+ * optional fourth picks the engine: backtrack (the default), mrv (the
+ * backtracker deciding the most constrained cell first), dlx, frontier
+ * (dynamic programming along the safe, for safes no more than
+ * FrontierSolver.MAX_WIDTH cells across one way or the other) or sat (a
+ * clause learning SAT solver on the safe's SafeCnf). Passing
+ * progress as the debug argument prints the search counters every second
+ * while a single-threaded search runs.
+ *
+ * The safe is turned to its canonical orientation before it is solved,
+ * and the solution is turned back, so all eight orientations of a safe
+ * are searched the same way. If the lasers.cache system property names a
+ * directory, solutions are kept there and any orientation of a safe that
+ * was solved before is not solved again. If the lasers.dimacs system
+ * property names a file, the safe is also written there as a formula in
+ * DIMACS format, to check against other SAT solvers.
+ *
+ * The backtracking engines remember the parts of the safe they have
+ * proven cannot be finished in a NogoodTable, shared by all threads, so
+ * the search does not go down the same dead end twice.
  *
  * @author Sean Strout @ RIT CS
  */
 public class SafeSolver {
-    public static void main(String[] args) throws FileNotFoundException {
-        if (args.length != 2) {
-            System.out.println("Usage: java SafeSolver safe.in debug");
+
+    /** The nogood table has 2 to the power of this many slots.*/
+    private final static int NOGOOD_BITS = 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.out.println("Usage: java SafeSolver safe.in debug [threads [backtrack|mrv|dlx|frontier|sat]]");
         } else {
-            // construct the initial configuration from the file
-            Configuration init = new SafeConfig(args[0]);
+            // construct the initial configuration from the file, and turn
+            // it to its canonical orientation
+            SafeConfig original = new SafeConfig(args[0]);
+            if (System.getProperty("lasers.dimacs") != null) {
+                new SafeCnf(original.getBoard()).write(System.getProperty("lasers.dimacs"));
+            }
+            char[][] grid = original.getSafe();
+            Symmetry symmetry = Symmetry.canonical(grid);
+            SafeBoard canonical = symmetry.swapsDimensions()
+                    ? new SafeBoard(symmetry.apply(grid), original.getBoard().getColnum(), original.getBoard().getRownum())
+                    : new SafeBoard(symmetry.apply(grid), original.getBoard().getRownum(), original.getBoard().getColnum());
+            SafeConfig init = new SafeConfig(new SafeBoard(canonical));
+            SolutionCache cache = System.getProperty("lasers.cache") == null ? null
+                    : new SolutionCache(1, new File(System.getProperty("lasers.cache")));
 
             // create the backtracker with the debug flag
             boolean debug = args[1].equals("true");
             Backtracker bt = new Backtracker(debug);
+            if (args[1].equals("progress")) {
+                bt.setProgress(1000, stats -> System.out.println("Progress: " + stats));
+            }
 
             // start the clock
             double start = System.currentTimeMillis();
 
-            // attempt to solve the puzzle
-            Optional<Configuration> sol = bt.solve(init);
+            // attempt to solve the puzzle, in parallel if asked to
+            Optional<Configuration> sol;
+            SolverStats stats = null;
+            int threads = args.length >= 3 ? Integer.parseInt(args[2]) : 1;
+            String engine = args.length == 4 ? args[3] : "backtrack";
+            if (engine.equals("mrv")) {
+                init.setCellOrder(new MostConstrainedOrder());
+            }
+            NogoodTable nogoods = new NogoodTable(NOGOOD_BITS);
+            init.setNogoods(nogoods);
+            char[][] cached = cache == null ? null : cache.get(canonical);
+            if (cached != null) {
+                System.out.println("Found in the cache.");
+                sol = cached == SolutionCache.UNSOLVABLE ? Optional.empty()
+                        : Optional.of(new SafeConfig(new SafeBoard(cached, canonical.getRownum(), canonical.getColnum())));
+            } else if (!init.propagate()) {
+                sol = Optional.empty();
+            } else if (engine.equals("dlx")) {
+                sol = new DancingLinksSolver().solve(init);
+            } else if (engine.equals("frontier")) {
+                if (!FrontierSolver.fits(init.getBoard())) {
+                    System.out.println("The safe is wider than " + FrontierSolver.MAX_WIDTH + " cells both ways.");
+                    return;
+                }
+                sol = new FrontierSolver().solve(init);
+            } else if (engine.equals("sat")) {
+                sol = CdclSolver.solve(init);
+            } else if (threads > 1) {
+                ParallelBacktracker pbt = new ParallelBacktracker(new ForkJoinPool(threads));
+                sol = pbt.solve(init);
+                stats = pbt.getStats();
+            } else {
+                sol = bt.solveInPlace(init);
+                stats = bt.getStats();
+            }
+            if (cache != null && cached == null) {
+                cache.put(canonical, sol.isPresent() ? sol.get().getSafe() : null);
+            }
+
+            // turn the solution back to the safe's own orientation
+            if (sol.isPresent()) {
+                sol = Optional.of(new SafeConfig(new SafeBoard(symmetry.undo(sol.get().getSafe()),
+                        original.getBoard().getRownum(), original.getBoard().getColnum())));
+            }
 
             // compute the elapsed time
             System.out.println("Elapsed time: " +
                     (System.currentTimeMillis() - start)/1000.0 + " seconds.");
+            if (stats != null) {
+                System.out.println("Search: " + stats);
+                System.out.println("Dead ends: " + nogoods.getStores() + " stored, "
+                        + nogoods.getHits() + " cut off");
+            }
 
             // indicate whether there was a solution, or not
             if (sol.isPresent()) {
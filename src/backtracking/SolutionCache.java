@@ -0,0 +1,268 @@
+package backtracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the solutions of safes that have already been solved, so
+ * opening the same safe again does not mean searching for it again.
+ *
+ * Safes are looked up by a SHA-256 hash of their normalized grid: the
+ * dimensions and the pillars (and any lasers already placed), with every
+ * other cell counted as empty, turned to its canonical orientation (see
+ * Symmetry). The file a safe came from plays no part, so copies of a
+ * safe, and rotated or mirrored copies of it, share one entry and are
+ * only ever solved once. Safes known to have no solution are remembered
+ * too.
+ *
+ * The cache keeps a bounded number of entries in memory, dropping the
+ * least recently used one when it is full. It can also keep every entry
+ * in a directory, one small file per safe, which outlives the program
+ * and is read whenever a safe is missing from memory. A solved entry's
+ * file holds the solution in the same layout as a safe file, after a
+ * first line saying it is solved.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SolutionCache {
+
+    /** What get() returns for a safe that is known to have no solution.*/
+    public static final char[][] UNSOLVABLE = new char[0][];
+
+    /** The line a cache file starts with for each kind of entry.*/
+    private static final String SOLVED_TAG = "solved", UNSOLVABLE_TAG = "unsolvable";
+
+    /** The entries in memory, least recently used first.*/
+    private final LinkedHashMap<String, char[][]> entries;
+
+    /** The directory entries are also kept in, or null to keep them in memory only.*/
+    private final File directory;
+
+    /** Number of lookups that found an entry, and that did not.*/
+    private long hits, misses;
+
+    /**
+     * Creates a cache that keeps its entries in memory only.
+     *
+     * @param capacity The most entries to keep
+     */
+    public SolutionCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Creates a cache that keeps its most recently used entries in memory
+     * and every entry in a directory, which is created if needed.
+     *
+     * @param capacity  The most entries to keep in memory
+     * @param directory The directory, or null to keep entries in memory only
+     */
+    public SolutionCache(int capacity, File directory) {
+        this.entries = new LinkedHashMap<String, char[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, char[][]> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.directory = directory;
+        if (directory != null) {
+            directory.mkdirs();
+        }
+    }
+
+    /**
+     * Returns the key a safe is cached under: a hex SHA-256 hash of the
+     * dimensions and normalized grid of its canonical form, so all eight
+     * orientations of a safe share one key.
+     *
+     * @param board The safe, before any search
+     * @return String
+     */
+    public static String key(SafeBoard board) {
+        char[][] grid = board.toGrid(false);
+        return hash(Symmetry.canonical(grid).apply(grid));
+    }
+
+    /**
+     * Hashes a grid.
+     *
+     * @param grid The grid
+     * @return The hex SHA-256 hash of its text
+     */
+    private static String hash(char[][] grid) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(Symmetry.serialize(grid).getBytes(StandardCharsets.US_ASCII));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Looks a safe up. A solution found for any orientation of the safe
+     * is turned back to match it.
+     *
+     * @param board The safe, before any search
+     * @return A copy of the safe's solution grid, UNSOLVABLE if it is
+     * known to have no solution, or null if it is not in the cache
+     */
+    public char[][] get(SafeBoard board) {
+        char[][] safe = board.toGrid(false);
+        Symmetry symmetry = Symmetry.canonical(safe);
+        char[][] canonical = symmetry.apply(safe);
+        String key = hash(canonical);
+        char[][] grid;
+        synchronized (this) {
+            grid = entries.get(key);
+        }
+        if (grid == null && directory != null) {
+            grid = read(key, canonical[0].length, canonical.length);
+            if (grid != null) {
+                synchronized (this) {
+                    entries.put(key, grid);
+                }
+            }
+        }
+        synchronized (this) {
+            if (grid == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return grid == UNSOLVABLE ? UNSOLVABLE : symmetry.undo(grid);
+    }
+
+    /**
+     * Remembers the outcome of a search that ran to the end. A search
+     * that timed out or was cancelled proves nothing and must not be put
+     * in the cache. The solution is stored in the safe's canonical
+     * orientation.
+     *
+     * @param board    The safe, before any search
+     * @param solution The solution grid, or null if there is none
+     */
+    public void put(SafeBoard board, char[][] solution) {
+        char[][] safe = board.toGrid(false);
+        Symmetry symmetry = Symmetry.canonical(safe);
+        char[][] canonical = symmetry.apply(safe);
+        String key = hash(canonical);
+        char[][] grid = solution != null ? symmetry.apply(solution) : UNSOLVABLE;
+        synchronized (this) {
+            entries.put(key, grid);
+        }
+        if (directory != null) {
+            write(key, grid, canonical[0].length, canonical.length);
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found an entry.
+     * @return long
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find an entry.
+     * @return long
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Reads an entry from the directory.
+     *
+     * @param key    The entry's key
+     * @param rownum The number of rows the safe has
+     * @param colnum The number of columns the safe has
+     * @return The solution grid, UNSOLVABLE, or null if there is no usable entry
+     */
+    private char[][] read(String key, int rownum, int colnum) {
+        File file = new File(directory, key + ".txt");
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+            if (lines.size() == 1 && lines.get(0).equals(UNSOLVABLE_TAG)) {
+                return UNSOLVABLE;
+            }
+            if (lines.size() < rownum + 2 || !lines.get(0).equals(SOLVED_TAG)
+                    || !lines.get(1).equals(rownum + " " + colnum)) {
+                return null;
+            }
+            char[][] grid = new char[colnum][rownum];
+            for (int r = 0; r < rownum; r++) {
+                String row = lines.get(r + 2).replace(" ", "");
+                if (row.length() != colnum) {
+                    return null;
+                }
+                for (int c = 0; c < colnum; c++) {
+                    grid[c][r] = row.charAt(c);
+                }
+            }
+            return grid;
+        } catch (IOException e) {
+            // an unreadable entry is as good as a missing one
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry to the directory, through a temporary file so a
+     * reader never sees half an entry.
+     *
+     * @param key    The entry's key
+     * @param grid   The solution grid, or UNSOLVABLE
+     * @param rownum The number of rows the safe has
+     * @param colnum The number of columns the safe has
+     */
+    private void write(String key, char[][] grid, int rownum, int colnum) {
+        List<String> lines = new ArrayList<>();
+        if (grid == UNSOLVABLE) {
+            lines.add(UNSOLVABLE_TAG);
+        } else {
+            lines.add(SOLVED_TAG);
+            lines.add(rownum + " " + colnum);
+            for (int r = 0; r < rownum; r++) {
+                StringBuilder row = new StringBuilder();
+                for (int c = 0; c < colnum; c++) {
+                    if (c > 0) {
+                        row.append(' ');
+                    }
+                    row.append(grid[c][r]);
+                }
+                lines.add(row.toString());
+            }
+        }
+        try {
+            Path tmp = Files.createTempFile(directory.toPath(), key, ".tmp");
+            Files.write(tmp, lines, StandardCharsets.US_ASCII);
+            Files.move(tmp, new File(directory, key + ".txt").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the disk tier is only an optimization; the entry stays in memory
+            System.err.println("Could not cache solution: " + e);
+        }
+    }
+}
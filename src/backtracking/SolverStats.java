@@ -0,0 +1,191 @@
+package backtracking;
+
+/**
+ * Counters kept by a Backtracker while it searches: how many
+ * configurations it looked at, how many successors turned out valid or
+ * invalid, how often it had to back up, how deep it went, and how long it
+ * took to find the first solution.
+ *
+ * The counters are plain fields updated by the searching thread only, so
+ * they cost next to nothing to keep. Read them from another thread only
+ * once the search is over, or from a progress listener, which is called
+ * on the searching thread.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SolverStats {
+
+    /** Number of configurations looked at.*/
+    long nodes;
+
+    /** Number of successors that were valid.*/
+    long valid;
+
+    /** Number of successors that were invalid.*/
+    long invalid;
+
+    /** Number of times the search backed up out of an exhausted configuration.*/
+    long backtracks;
+
+    /** The deepest level the search reached.*/
+    int maxDepth;
+
+    /** System.nanoTime() when the search started.*/
+    private long startNanos;
+
+    /** System.nanoTime() when the search ended, or 0 while it is running.*/
+    private long endNanos;
+
+    /** System.nanoTime() when the first solution was found, or 0 if none has been.*/
+    private long solutionNanos;
+
+    /** Whether the search ran out of time before it was done.*/
+    boolean timedOut;
+
+    /** Whether the search was cancelled before it was done.*/
+    boolean cancelled;
+
+    /**
+     * Marks the start of a search.
+     */
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks that a solution has been found.
+     */
+    void solved() {
+        if (solutionNanos == 0) {
+            solutionNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the end of a search.
+     */
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds another search's counters to these, as if both had been one
+     * search. The combined time runs from the earlier start to the later
+     * end, and the first solution is the earlier of the two.
+     *
+     * @param other The counters to add
+     */
+    public synchronized void add(SolverStats other) {
+        nodes += other.nodes;
+        valid += other.valid;
+        invalid += other.invalid;
+        backtracks += other.backtracks;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        if (startNanos == 0 || (other.startNanos != 0 && other.startNanos < startNanos)) {
+            startNanos = other.startNanos;
+        }
+        endNanos = Math.max(endNanos, other.endNanos);
+        if (solutionNanos == 0 || (other.solutionNanos != 0 && other.solutionNanos < solutionNanos)) {
+            solutionNanos = other.solutionNanos;
+        }
+        timedOut |= other.timedOut;
+        cancelled |= other.cancelled;
+    }
+
+    /**
+     * Returns the number of configurations looked at.
+     * @return long
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of successors that were valid.
+     * @return long
+     */
+    public long getValidSuccessors() {
+        return valid;
+    }
+
+    /**
+     * Returns the number of successors that were invalid.
+     * @return long
+     */
+    public long getInvalidSuccessors() {
+        return invalid;
+    }
+
+    /**
+     * Returns the number of times the search backed up.
+     * @return long
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Returns the deepest level the search reached.
+     * @return int
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns true if the search gave up because it ran out of time. The
+     * counters then describe the part of the tree that was searched.
+     * @return boolean
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns true if the search gave up because it was cancelled.
+     * @return boolean
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns how long the search ran, or has been running, in milliseconds.
+     * @return double
+     */
+    public double getElapsedMillis() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1e6;
+    }
+
+    /**
+     * Returns the number of configurations looked at per second.
+     * @return double
+     */
+    public double getNodesPerSecond() {
+        double millis = getElapsedMillis();
+        return millis > 0 ? nodes * 1000.0 / millis : 0;
+    }
+
+    /**
+     * Returns how long it took to find the first solution, in
+     * milliseconds, or -1 if none has been found.
+     * @return double
+     */
+    public double getTimeToFirstSolution() {
+        return solutionNanos == 0 ? -1 : (solutionNanos - startNanos) / 1e6;
+    }
+
+    /**
+     * Returns a one-line summary of the counters.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return String.format("nodes=%d valid=%d invalid=%d backtracks=%d maxDepth=%d elapsed=%.1fms nodes/s=%.0f firstSolution=%s",
+                nodes, valid, invalid, backtracks, maxDepth, getElapsedMillis(), getNodesPerSecond(),
+                solutionNanos == 0 ? "none" : String.format("%.1fms", getTimeToFirstSolution()))
+                + (timedOut ? " (timed out)" : cancelled ? " (cancelled)" : "");
+    }
+}
@@ -0,0 +1,141 @@
+package backtracking;
+
+/**
+ * One of the eight symmetries of a rectangle: the four rotations, and the
+ * four reflections. Turning or flipping a safe turns or flips its
+ * solutions with it, so a safe only needs to be solved in one
+ * orientation, its canonical form, and the solution can be carried back
+ * to any other.
+ *
+ * Grids are indexed [col][row], as everywhere else. Symmetries that
+ * swap rows and columns also swap the dimensions of the grid.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class Symmetry {
+
+    /** The identity: grids are left as they are.*/
+    public static final Symmetry IDENTITY = new Symmetry(0);
+
+    /** Names of the symmetries, by index.*/
+    private static final String[] NAMES = {"identity", "rotate 90", "rotate 180", "rotate 270",
+            "mirror", "transpose", "flip", "anti-transpose"};
+
+    /**
+     * Which symmetry this is: 0-3 rotate clockwise by that many quarter
+     * turns, 4 mirrors left to right, 5 transposes, 6 flips top to bottom
+     * and 7 transposes about the other diagonal.
+     */
+    private final int index;
+
+    /**
+     * Creates one of the symmetries.
+     *
+     * @param index Which one, from 0 to 7
+     */
+    private Symmetry(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Finds the symmetry that takes a grid to its canonical form, the
+     * orientation whose rows read smallest. Every orientation of a grid
+     * has the same canonical form.
+     *
+     * @param grid The grid
+     * @return The symmetry to apply
+     */
+    public static Symmetry canonical(char[][] grid) {
+        Symmetry best = IDENTITY;
+        String smallest = serialize(grid);
+        for (int i = 1; i < 8; i++) {
+            Symmetry s = new Symmetry(i);
+            String text = serialize(s.apply(grid));
+            if (text.compareTo(smallest) < 0) {
+                smallest = text;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes a grid out as text: its dimensions, then its rows.
+     *
+     * @param grid The grid
+     * @return String
+     */
+    public static String serialize(char[][] grid) {
+        int colnum = grid.length;
+        int rownum = colnum == 0 ? 0 : grid[0].length;
+        StringBuilder text = new StringBuilder(rownum * (colnum + 1) + 8);
+        text.append(rownum).append(' ').append(colnum).append('\n');
+        for (int r = 0; r < rownum; r++) {
+            for (int c = 0; c < colnum; c++) {
+                text.append(grid[c][r]);
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the symmetry that undoes this one.
+     * @return Symmetry
+     */
+    public Symmetry inverse() {
+        return index == 1 ? new Symmetry(3) : index == 3 ? new Symmetry(1) : this;
+    }
+
+    /**
+     * Returns true if this symmetry swaps rows and columns.
+     * @return boolean
+     */
+    public boolean swapsDimensions() {
+        return index == 1 || index == 3 || index == 5 || index == 7;
+    }
+
+    /**
+     * Turns or flips a grid.
+     *
+     * @param grid The grid, which is not modified
+     * @return A new grid
+     */
+    public char[][] apply(char[][] grid) {
+        int colnum = grid.length;
+        int rownum = colnum == 0 ? 0 : grid[0].length;
+        char[][] out = swapsDimensions() ? new char[rownum][colnum] : new char[colnum][rownum];
+        for (int c = 0; c < colnum; c++) {
+            for (int r = 0; r < rownum; r++) {
+                char ch = grid[c][r];
+                switch (index) {
+                    case 0: out[c][r] = ch; break;
+                    case 1: out[rownum - 1 - r][c] = ch; break;
+                    case 2: out[colnum - 1 - c][rownum - 1 - r] = ch; break;
+                    case 3: out[r][colnum - 1 - c] = ch; break;
+                    case 4: out[colnum - 1 - c][r] = ch; break;
+                    case 5: out[r][c] = ch; break;
+                    case 6: out[c][rownum - 1 - r] = ch; break;
+                    default: out[rownum - 1 - r][colnum - 1 - c] = ch; break;
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Carries a grid back through this symmetry, undoing apply().
+     *
+     * @param grid A grid in the orientation apply() produces
+     * @return A new grid in the original orientation
+     */
+    public char[][] undo(char[][] grid) {
+        return inverse().apply(grid);
+    }
+
+    @Override
+    public String toString() {
+        return NAMES[index];
+    }
+}
@@ -6,6 +6,7 @@ import javafx.application.Platform;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -19,6 +20,8 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -50,9 +53,36 @@ public class LasersGUI extends Application implements Observer {
     /**Variable that will hold the safe*/
     private GridPane Safe = new GridPane();
 
+    /**The buttons showing each cell of the safe, indexed [col][row]. They are kept for as long as the safe keeps
+     * its size, and only their images are changed.*/
+    private Button[][] cells;
+
+    /**Safes with more cells than this are drawn on a SafeCanvas rather than with a button per cell.*/
+    public final static int CANVAS_CELLS = 400;
+
+    /**The canvas the safe is drawn on, or null while it is shown with buttons.*/
+    private SafeCanvas canvas;
+
+    /**The names of every image a cell can show.*/
+    private static final String[] IMAGES = {"laser.png", "beam.png", "pillar0.png", "pillar1.png", "pillar2.png",
+            "pillar3.png", "pillar4.png", "pillarX.png", "red.png", "yellow.png"};
+
+    /**Images from the resources subdirectory, loaded once and shared by every cell, by file name.*/
+    private final Map<String, Image> images = new HashMap<>();
+
+    /**Button backgrounds made from the images, by file name.*/
+    private final Map<String, Background> backgrounds = new HashMap<>();
+
+    /**The background a button has when none is set on it.*/
+    private Background plain;
+
     /**Reference to the stage object used by the GUI.*/
     private Stage stage;
 
+    /**What the Check or Hint button does once the model has finished looking for a solution that keeps the user's
+     * lasers, or null if neither is waiting for it.*/
+    private Runnable waitingForCompletion;
+
 
     @Override
     public void init() throws Exception {
@@ -77,16 +107,35 @@ public class LasersGUI extends Application implements Observer {
      * @param bgImgName the name of the image file
      */
     private void setButtonBackground(Button button, String bgImgName) {
-        BackgroundImage backgroundImage = new BackgroundImage(
-                new Image( getClass().getResource("resources/" + bgImgName).toExternalForm()),
-                BackgroundRepeat.NO_REPEAT,
-                BackgroundRepeat.NO_REPEAT,
-                BackgroundPosition.CENTER,
-                BackgroundSize.DEFAULT);
-        Background background = new Background(backgroundImage);
+        Background background = backgrounds.get(bgImgName);
+        if (background == null) {
+            BackgroundImage backgroundImage = new BackgroundImage(
+                    image(bgImgName),
+                    BackgroundRepeat.NO_REPEAT,
+                    BackgroundRepeat.NO_REPEAT,
+                    BackgroundPosition.CENTER,
+                    BackgroundSize.DEFAULT);
+            background = new Background(backgroundImage);
+            backgrounds.put(bgImgName, background);
+        }
         button.setBackground(background);
     }
 
+    /**
+     * Returns an image in the resources subdirectory, loading it the first time it is asked for.
+     *
+     * @param name the name of the image file
+     * @return Image
+     */
+    private Image image(String name) {
+        Image image = images.get(name);
+        if (image == null) {
+            image = new Image(getClass().getResourceAsStream("resources/" + name));
+            images.put(name, image);
+        }
+        return image;
+    }
+
     /**
      * This is a private demo method that shows how to create a button
      * and attach a foreground image with a background image that
@@ -98,7 +147,7 @@ public class LasersGUI extends Application implements Observer {
         // this demonstrates how to create a button and attach a foreground and
         // background image to it.
         Button button = new Button();
-        Image laserImg = new Image(getClass().getResourceAsStream("resources/laser.png"));
+        Image laserImg = image("laser.png");
         ImageView laserIcon = new ImageView(laserImg);
         button.setGraphic(laserIcon);
         setButtonBackground(button, "yellow.png");
@@ -137,6 +186,14 @@ public class LasersGUI extends Application implements Observer {
 
         model.getSolution();
 
+        for (String name : IMAGES) {
+            image(name);
+        }
+        Button probe = new Button();
+        new Scene(new Group(probe));
+        probe.applyCss();
+        this.plain = probe.getBackground();
+
         this.GUIMessage.setPrefSize(150,50);
         this.GUIMessage.setText(model.getFilename() + " loaded");
 
@@ -158,16 +215,55 @@ public class LasersGUI extends Application implements Observer {
     }
 
     /**
-     * Updates the GUI by creating a new BorderPane object, using it as the scene, and resetting the window size to that scene.
+     * Updates the GUI with what changed in the model. When lasers are added or removed, or the error being pointed out
+     * moves, only the cells that changed are redrawn. When the whole safe is replaced, every cell is redrawn, and only
+     * if its size changed are new buttons made and the window resized to fit them. When the model has finished looking
+     * for a solution, a Check or Hint waiting for it carries on. Changes announced from the solver's threads are handed
+     * over to the JavaFX thread first.
      * @param o The observable object.
-     * @param arg The argument object being passed in.
+     * @param arg What changed, a ModelChange.
      */
     @Override
     public void update(Observable o, Object arg) {
-        this.BP.getChildren().clear();
-        //this.BP = new BorderPane();
-        makeBP();
-        stage.sizeToScene();
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> update(o, arg));
+            return;
+        }
+        ModelChange change = arg instanceof ModelChange ? (ModelChange) arg : null;
+        if (change != null && change.getKind() == ModelChange.Kind.SOLVER) {
+            if (waitingForCompletion != null && !model.CompletionRunning()) {
+                Runnable waiting = waitingForCompletion;
+                waitingForCompletion = null;
+                waiting.run();
+            }
+            return;
+        }
+        char[][] grid = this.model.getSafe();
+        if (change == null || change.getKind() == ModelChange.Kind.SAFE) {
+            waitingForCompletion = null;
+            if (cells.length != model.getColnum() || cells[0].length != model.getRownum()) {
+                this.BP.getChildren().clear();
+                this.Safe.getChildren().clear();
+                makeBP();
+                stage.sizeToScene();
+            } else if (canvas != null) {
+                canvas.redraw(grid);
+            } else {
+                for (int r = 0; r < this.model.getRownum(); r++) {
+                    for (int c = 0; c < this.model.getColnum(); c++) {
+                        drawCell(grid[c][r], c, r);
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < change.size(); i++) {
+                if (canvas != null) {
+                    canvas.redraw(grid, change.getCol(i), change.getRow(i));
+                } else {
+                    drawCell(grid[change.getCol(i)][change.getRow(i)], change.getCol(i), change.getRow(i));
+                }
+            }
+        }
     }
 
     /**
@@ -182,40 +278,28 @@ public class LasersGUI extends Application implements Observer {
 
     /**
      * Creates the left portion of the overall GUI,
-     * which is graphical representation of the safe itself.
+     * which is graphical representation of the safe itself. Safes with more than CANVAS_CELLS cells are drawn on a
+     * SafeCanvas, and smaller ones get a button per cell.
      * @return Node Left portion of the GUI
      */
     private Node makeLeft(){
         char[][] grid = this.model.getSafe();
+        this.cells = new Button[this.model.getColnum()][this.model.getRownum()];
+        if (this.model.getColnum() * this.model.getRownum() > CANVAS_CELLS) {
+            this.canvas = new SafeCanvas(this.model, this::image, (col, row) -> {
+                if (!clickCell(col, row)) {
+                    canvas.showError(col, row);
+                }
+            });
+            canvas.setBackground(new Background( new BackgroundFill(Color.LIGHTGRAY,CornerRadii.EMPTY,Insets.EMPTY)));
+            return canvas;
+        }
+        this.canvas = null;
         for(int r = 0; r < this.model.getRownum(); r++){
             for (int c = 0; c < this.model.getColnum(); c++){
-                char curr = grid[c][r];
-                Button btn = makeSafeButtons(curr, c, r);
-                btn.setOnAction(event -> {
-                    int row = Safe.getRowIndex(btn);
-                    int col = Safe.getColumnIndex(btn);
-                    model.resetErrorRC();
-                    //The following block if if/else statements prints out messages to the user based on where they click to add a laser.
-                    if(this.model.isLaser(col,row)){
-                        if(this.model.removeLaser(col,row)){
-                            GUIMessage.setText("Laser removed at: ("+row+", "+col+")");
-                        }
-                        else {
-                            GUIMessage.setText("Error removing laser at: ("+row+", "+col+")");
-                            setButtonBackground(btn,"red.png");
-                        }
-                    }
-                    else {
-                        if (this.model.addLaser(col,row)){
-                            GUIMessage.setText("Laser added at: ("+row+", "+col+")");
-                        }
-                        else {
-                            GUIMessage.setText("Error adding laser at: ("+row+", "+col+")");
-                            setButtonBackground(btn,"red.png");
-                        }
-                    }
-                });
-                Safe.add(btn, c, r);
+                cells[c][r] = makeCell();
+                drawCell(grid[c][r], c, r);
+                Safe.add(cells[c][r], c, r);
             }
         }
         Safe.setAlignment(Pos.CENTER);
@@ -225,77 +309,117 @@ public class LasersGUI extends Application implements Observer {
     }
 
     /**
-     * Returns a button with the proper image as its background, which is determined by the char tile, i.e.
-     * if tile = 'L' then the button has the image of a laser on it and so on.
-     * @param tile char
-     * @return button
+     * Creates the button for one cell of the safe, which adds or removes a laser there when clicked.
+     * What it shows is set by drawCell().
+     * @return Button
      */
-    private Button makeSafeButtons(char tile, int c, int r){
+    private Button makeCell(){
         Button btn = new Button();
         double prefSize = 50;
         btn.setMinSize(prefSize,prefSize);
-        switch (tile){
-            //If the button is being pointed to by the error coordinates, its background it set to red, indicating a check error.
-            case 'L':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/laser.png"))));
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                else{
-                    setButtonBackground(btn, "yellow.png");
-                }
-                break;
-            case '*':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/beam.png"))));
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                else{
-                    setButtonBackground(btn, "yellow.png");
-                }
-                break;
-            case '0':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/pillar0.png"))));
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                break;
-            case '1':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/pillar1.png"))));
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                break;
-            case '2':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/pillar2.png"))));
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                break;
-            case '3':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/pillar3.png"))));
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                break;
-            case '4':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/pillar4.png"))));
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                break;
-            case 'X':
-                btn.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/pillarX.png"))));
-                break;
-            default:
-                if(c == model.getErrorC() && r == model.getErrorR()){
-                    setButtonBackground(btn, "red.png");
-                }
-                break;
-        }
+        btn.setGraphic(new ImageView());
+        btn.setOnAction(event -> {
+            if (!clickCell(Safe.getColumnIndex(btn), Safe.getRowIndex(btn))) {
+                setButtonBackground(btn,"red.png");
+            }
+        });
         return btn;
     }
 
+    /**
+     * Adds or removes a laser at a cell that was clicked, and tells the user what happened.
+     * @param col column of the cell
+     * @param row row of the cell
+     * @return boolean false if the laser could not be added or removed
+     */
+    private boolean clickCell(int col, int row){
+        model.resetErrorRC();
+        //The following block if if/else statements prints out messages to the user based on where they click to add a laser.
+        if(this.model.isLaser(col,row)){
+            if(this.model.removeLaser(col,row)){
+                GUIMessage.setText("Laser removed at: ("+row+", "+col+")");
+            }
+            else {
+                GUIMessage.setText("Error removing laser at: ("+row+", "+col+")");
+                return false;
+            }
+        }
+        else {
+            if (this.model.addLaser(col,row)){
+                GUIMessage.setText("Laser added at: ("+row+", "+col+")");
+            }
+            else {
+                GUIMessage.setText("Error adding laser at: ("+row+", "+col+")");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the image and background of a cell's button, which are determined by the char tile, i.e.
+     * if tile = 'L' then the button has the image of a laser on it and so on.
+     * @param tile char
+     * @param c column of the cell
+     * @param r row of the cell
+     */
+    private void drawCell(char tile, int c, int r){
+        Button btn = cells[c][r];
+        //If the button is being pointed to by the error coordinates, its background it set to red, indicating a check error.
+        String background = SafeCanvas.background(tile, c == model.getErrorC() && r == model.getErrorR());
+        String graphic = SafeCanvas.graphic(tile);
+        ((ImageView) btn.getGraphic()).setImage(graphic == null ? null : image(graphic));
+        if (background != null) {
+            setButtonBackground(btn, background);
+        } else {
+            btn.setBackground(plain);
+        }
+    }
+
+    /**
+     * Checks the safe, and if it has an error, whether any solution keeps the user's lasers. Looking for one may take
+     * a while, so until the model has finished, the message says it is still checking, and this runs again once it has.
+     */
+    private void check(){
+        if(model.isValid()){
+            GUIMessage.setText("Safe is fully verified!");
+        }
+        else if(!model.findCompletion()){
+            GUIMessage.setText("Error verifying at: ("+model.getR()+", "+model.getC()+")\nchecking\u2026");
+            waitingForCompletion = this::check;
+        }
+        else if(!model.isCompletable()){
+            GUIMessage.setText("Error verifying at: ("+model.getR()+", "+model.getC()+")\nNo solution keeps these lasers.");
+        }
+        else {
+            GUIMessage.setText("Error verifying at: ("+model.getR()+", "+model.getC()+")");
+        }
+    }
+
+    /**
+     * Adds a laser from a solution that keeps the user's lasers, when no quick hint could be found. Looking for one
+     * may take a while, so until the model has finished, the message says it is still checking, and this runs again
+     * once it has.
+     */
+    private void hintFromCompletion(){
+        if(!model.findCompletion()){
+            GUIMessage.setText("Hint: checking\u2026");
+            waitingForCompletion = this::hintFromCompletion;
+        }
+        else if(model.runHint()){
+            GUIMessage.setText("Hint: added laser to (" + model.getR() + "," + model.getC() + ")");
+        }
+        else if(model.HintTimedOut()){
+            GUIMessage.setText("Gave up looking for a next step.");
+        }
+        else if(!model.ThreadRunning() && !model.SolutionIsPresent() && !model.SolutionTimedOut()){
+            GUIMessage.setText("No solution present.");
+        }
+        else{
+            GUIMessage.setText("Hint: no next step");
+        }
+    }
+
     /**
      * Creates the right portion of the overall GUI,
      * where the check, hint, solve, restart, and load buttons are located.
@@ -309,40 +433,19 @@ public class LasersGUI extends Application implements Observer {
 
         //Check Button
         Button Check = new Button("Check");Check.setMinSize(60,40);
-        Check.setOnAction(event -> {
-            if(model.isValid()){
-                GUIMessage.setText("Safe is fully verified!");
-            }
-            else {
-
-                GUIMessage.setText("Error verifying at: ("+model.getR()+", "+model.getC()+")");
-            }
-        });
+        Check.setOnAction(event -> check());
 
         //Hint Button
         Button Hint = new Button("Hint");Hint.setMinSize(60,40);
         Hint.setOnAction(event -> {
-                if(model.ThreadRunning()){
-                    GUIMessage.setText("Still Calculating Solution.");
-                }
-                else if(model.isGoal()){
+                if(model.isGoal()){
                     GUIMessage.setText(model.getFilename() + " solved!");
                 }
-                else if(!model.SolutionIsPresent()){
-                    GUIMessage.setText("No solution present.");
+                else if(model.runQuickHint()){
+                    GUIMessage.setText("Hint: added laser to (" + model.getR() + "," + model.getC() + ")");
                 }
                 else{
-                    try {
-                        if(!model.runHint(model.getSolvedSafe())){
-                            GUIMessage.setText("Hint: no next step");
-                        }
-                        else{
-                            GUIMessage.setText("Hint: added laser to (" + model.getR() + "," + model.getC() + ")");
-                        }
-
-                    } catch (NullPointerException e){
-                        System.out.println("array out of bound");
-                    }
+                    hintFromCompletion();
                 }
         });
 
@@ -360,6 +463,9 @@ public class LasersGUI extends Application implements Observer {
                 }
                 GUIMessage.setText(model.getFilename() + " solved!");
             }
+            else if(model.SolutionTimedOut()){
+                GUIMessage.setText("Gave up looking for a solution.");
+            }
             else {
                 GUIMessage.setText(model.getFilename() + "\nHas No Solution.");
             }
@@ -386,9 +492,7 @@ public class LasersGUI extends Application implements Observer {
             }catch (Exception e){
                 return;
             }
-            Safe.getChildren().clear();
             this.GUIMessage.setText(file.getName()+ " loaded");
-            makeBP();
         });
 
         menu.getChildren().addAll(gameState, Check, Hint, Solve, Restart, Load);
@@ -0,0 +1,256 @@
+package gui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import model.LasersModel;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Draws a safe on a single Canvas instead of one Button per cell, for safes too large for a grid of buttons.
+ * Clicks are turned back into cells by their position, and only the cells that changed are drawn again.
+ * The scroll wheel zooms in and out around the mouse, and dragging moves the safe around.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeCanvas extends Pane {
+
+    /**The largest the canvas asks to be, in pixels, in either direction.*/
+    public final static double MAX_VIEW = 800;
+
+    /**The size of a cell, in pixels, when there is room for it. This is the size of a cell's button.*/
+    public final static double CELL_SIZE = 50;
+
+    /**The smallest and largest a cell can be zoomed to, in pixels.*/
+    private final static double MIN_CELL = 2, MAX_CELL = 200;
+
+    /**The part of a cell its images take up, as they do on a cell's button.*/
+    private final static double IMAGE_PART = 0.6;
+
+    /**Colour of the gaps between cells.*/
+    private final static Color GAP = Color.LIGHTGRAY;
+
+    /**Colour of a cell with no background image.*/
+    private final static Color PLAIN = Color.gray(0.93);
+
+    /**The canvas the safe is drawn on, the size of the pane.*/
+    private final Canvas canvas = new Canvas();
+
+    /**The model, for the position of the error being pointed out.*/
+    private final LasersModel model;
+
+    /**Looks up the images in the resources subdirectory by file name.*/
+    private final Function<String, Image> images;
+
+    /**Told the column and row of a cell when it is clicked.*/
+    private final BiConsumer<Integer, Integer> onClick;
+
+    /**The safe, with its beams, as last drawn. Indexed [col][row].*/
+    private char[][] grid;
+
+    /**The size of a cell, in pixels.*/
+    private double size;
+
+    /**Where the top left corner of the safe is drawn, in pixels.*/
+    private double offsetX, offsetY;
+
+    /**Where the mouse was last seen during a drag.*/
+    private double dragX, dragY;
+
+    /**
+     * Creates a canvas showing a safe, sized to fit it at up to CELL_SIZE pixels a cell.
+     *
+     * @param model   The model whose safe is shown
+     * @param images  Looks up the images in the resources subdirectory by file name
+     * @param onClick Told the column and row of a cell when it is clicked
+     */
+    public SafeCanvas(LasersModel model, Function<String, Image> images, BiConsumer<Integer, Integer> onClick) {
+        this.model = model;
+        this.images = images;
+        this.onClick = onClick;
+        this.grid = model.getSafe();
+        this.size = Math.max(MIN_CELL, Math.min(CELL_SIZE,
+                Math.min(MAX_VIEW / model.getColnum(), MAX_VIEW / model.getRownum())));
+        setPrefSize(size * model.getColnum(), size * model.getRownum());
+
+        getChildren().add(canvas);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener(observable -> redraw());
+        canvas.heightProperty().addListener(observable -> redraw());
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+
+        setOnScroll(event -> {
+            double zoomed = Math.max(MIN_CELL, Math.min(MAX_CELL, size * Math.pow(1.002, event.getDeltaY())));
+            offsetX = event.getX() - (event.getX() - offsetX) * zoomed / size;
+            offsetY = event.getY() - (event.getY() - offsetY) * zoomed / size;
+            size = zoomed;
+            redraw();
+        });
+        setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        setOnMouseDragged(event -> {
+            offsetX += event.getX() - dragX;
+            offsetY += event.getY() - dragY;
+            dragX = event.getX();
+            dragY = event.getY();
+            redraw();
+        });
+        setOnMouseClicked(event -> {
+            if (event.getButton() != MouseButton.PRIMARY || !event.isStillSincePress()) {
+                return;
+            }
+            int col = (int) Math.floor((event.getX() - offsetX) / size);
+            int row = (int) Math.floor((event.getY() - offsetY) / size);
+            if (col >= 0 && col < grid.length && row >= 0 && row < grid[0].length) {
+                onClick.accept(col, row);
+            }
+        });
+    }
+
+    /**
+     * Returns the image a tile shows, if any.
+     *
+     * @param tile char
+     * @return The image's file name, or null
+     */
+    static String graphic(char tile) {
+        switch (tile) {
+            case 'L':
+                return "laser.png";
+            case '*':
+                return "beam.png";
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case 'X':
+                return "pillar" + tile + ".png";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the background image a tile has, if any. Lasers and beams are yellow, and the error being pointed
+     * out is red, unless it is a plain pillar.
+     *
+     * @param tile  char
+     * @param error Whether the error being pointed out is at the tile
+     * @return The image's file name, or null
+     */
+    static String background(char tile, boolean error) {
+        if (tile == 'X') {
+            return null;
+        } else if (error) {
+            return "red.png";
+        } else if (tile == 'L' || tile == '*') {
+            return "yellow.png";
+        }
+        return null;
+    }
+
+    /**
+     * Draws the whole safe again, as it now is.
+     *
+     * @param grid The safe, with its beams, indexed [col][row]
+     */
+    public void redraw(char[][] grid) {
+        this.grid = grid;
+        redraw();
+    }
+
+    /**
+     * Draws one cell of the safe again, as it now is.
+     *
+     * @param grid The safe, with its beams, indexed [col][row]
+     * @param col  The column of the cell
+     * @param row  The row of the cell
+     */
+    public void redraw(char[][] grid, int col, int row) {
+        this.grid = grid;
+        drawCell(canvas.getGraphicsContext2D(), col, row, background(grid[col][row], isError(col, row)));
+    }
+
+    /**
+     * Draws a cell with a red background, to show a click there could not be carried out.
+     *
+     * @param col The column of the cell
+     * @param row The row of the cell
+     */
+    public void showError(int col, int row) {
+        drawCell(canvas.getGraphicsContext2D(), col, row, "red.png");
+    }
+
+    /**
+     * Draws every cell that can be seen.
+     */
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(GAP);
+        g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        int firstCol = Math.max(0, (int) Math.floor(-offsetX / size));
+        int lastCol = Math.min(grid.length - 1, (int) Math.floor((canvas.getWidth() - offsetX) / size));
+        int firstRow = Math.max(0, (int) Math.floor(-offsetY / size));
+        int lastRow = Math.min(grid[0].length - 1, (int) Math.floor((canvas.getHeight() - offsetY) / size));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                drawCell(g, col, row, background(grid[col][row], isError(col, row)));
+            }
+        }
+    }
+
+    /**
+     * Draws one cell: its gap, its background and its image.
+     *
+     * @param g          Where to draw
+     * @param col        The column of the cell
+     * @param row        The row of the cell
+     * @param background The background image's file name, or null for none
+     */
+    private void drawCell(GraphicsContext g, int col, int row, String background) {
+        double x = offsetX + col * size;
+        double y = offsetY + row * size;
+        if (x + size < 0 || y + size < 0 || x > canvas.getWidth() || y > canvas.getHeight()) {
+            return;
+        }
+        double gap = size >= 8 ? 1 : 0;
+        g.setFill(GAP);
+        g.fillRect(x, y, size, size);
+        g.setFill(PLAIN);
+        g.fillRect(x + gap, y + gap, size - 2 * gap, size - 2 * gap);
+        double part = size * IMAGE_PART;
+        double inset = (size - part) / 2;
+        if (background != null) {
+            g.drawImage(images.apply(background), x + inset, y + inset, part, part);
+        }
+        String graphic = graphic(grid[col][row]);
+        if (graphic != null) {
+            g.drawImage(images.apply(graphic), x + inset, y + inset, part, part);
+        }
+    }
+
+    /**
+     * Returns true if the error being pointed out is at a cell.
+     *
+     * @param col The column of the cell
+     * @param row The row of the cell
+     * @return boolean
+     */
+    private boolean isError(int col, int row) {
+        return col == model.getErrorC() && row == model.getErrorR();
+    }
+}
@@ -2,18 +2,26 @@ package model;
 
 import backtracking.Backtracker;
 import backtracking.Configuration;
+import backtracking.HintFinder;
+import backtracking.MostConstrainedOrder;
+import backtracking.ParallelBacktracker;
+import backtracking.SafeBoard;
 import backtracking.SafeConfig;
+import backtracking.SafeParser;
+import backtracking.SolutionCache;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Observable;
 import java.util.Optional;
-import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The model that is used to represent the safe in the GUI. The data is represented by a 2D Array, and is manipulated by
- * methods called by the controller.
+ * methods called by the controller. Every change is announced to the observers with a ModelChange saying what changed,
+ * so views can redraw only the cells that did.
  * @author Alex Williams
  * @author Jethro Masangya
  */
@@ -52,18 +60,61 @@ public class LasersModel extends Observable {
     /**Integer pointing to the column on the safe where an error occured.*/
     private int errorC;
 
+    /**Keeps the beams, pillar counts and errors of the Safe up to date as lasers are added and removed.*/
+    private SafeTracker tracker;
+
     /**The name of the file that the Safe is being read from.*/
     private String filename;
 
     /**A 2-D Array that is used to store the solution to the puzzle.*/
-    private char[][] SolvedSafe = null;
+    private volatile char[][] SolvedSafe = null;
 
     /**A boolean that indicates whether the safe has been checked to determine a solution.*/
-    private boolean checkedSafe = false;
+    private volatile boolean checkedSafe = false;
+
+    /**A boolean that indicates whether the solver gave up before it was done.*/
+    private volatile boolean timedOut = false;
 
     /**A thread that is created to find the solution to the puzzle. It is created when the puzzle is initialized.*/
     private Thread SolutionThread;
 
+    /**How long, in milliseconds, the solver may look for a solution before giving up.*/
+    public final static long SOLVE_TIME_LIMIT = 30000;
+
+    /**How long, in milliseconds, a quick hint may take before falling back on the solution.*/
+    public final static long HINT_TIME_LIMIT = 100;
+
+    /**How long, in milliseconds, looking for a solution that keeps the user's lasers may take before giving up.*/
+    public final static long COMPLETION_TIME_LIMIT = 2000;
+
+    /**The last solution found that keeps every laser the user had placed. It is used again for as long as it still
+     * keeps them all, so most hints need no search at all.*/
+    private volatile char[][] completion;
+
+    /**The safe, lasers and all, that the last look for a solution keeping the user's lasers gave up on, or null.*/
+    private volatile char[][] completionGaveUpOn;
+
+    /**A thread that looks for a solution keeping the user's lasers, or null if none is looking.*/
+    private Thread CompletionThread;
+
+    /**Set to tell the current Completion Thread that its result is no longer wanted; its search stops as well.*/
+    private AtomicBoolean cancelCompletion = new AtomicBoolean();
+
+    /**Solutions of the safes opened so far, shared by every model. Set the lasers.cache system property
+     * to a directory to keep them between runs as well.*/
+    private static final SolutionCache CACHE = new SolutionCache(64,
+            System.getProperty("lasers.cache") == null ? null : new File(System.getProperty("lasers.cache")));
+
+    /**Solutions found keeping the user's lasers, by the safe they were placed on. They are kept apart from CACHE, so
+     * that a few checks and hints never push out the solutions of the safes opened, nor reach the disk.*/
+    private final SolutionCache completions = new SolutionCache(16);
+
+    /**Set to tell the current Solution Thread that its result is no longer wanted.*/
+    private AtomicBoolean cancelSolution = new AtomicBoolean();
+
+    /**The stop flag of the current Solution Thread's search. The solver also sets it itself once it finds a solution.*/
+    private AtomicBoolean solverStop = new AtomicBoolean();
+
     /**
      * Initializes the model: creates the grid for the safe, saves the number and rows and column,
      * and saves the filename.
@@ -72,35 +123,80 @@ public class LasersModel extends Observable {
      */
     public LasersModel(String filename) throws FileNotFoundException {
         this.filename = filename;
-        Scanner in = new Scanner(new File(filename));
-
-        String[] line = in.nextLine().split(" ");
-        this.Rownum = Integer.parseInt(line[0]);
-        this.Colnum = Integer.parseInt(line[1]);
+        readSafe(filename);
         this.R = 0;
         this.C = 0;
         this.errorC = -1;
         this.errorR = -1;
-        this.Safe = new char[this.Colnum][this.Rownum];
-
-        for (int i = 0; i < Rownum; i++) {
-            char[] row = in.nextLine().replaceAll(" ", "").toCharArray();
-            for (int k = 0; k < Colnum; k++) {
-                Safe[k][i] = row[k];
-            }
-        }
-        in.close();
 
         LoadThread(filename);
     }
 
+    /**
+     * Reads a safe file into the model's grid, setting the number of rows and columns.
+     * @param filename String for the safe filename
+     * @throws FileNotFoundException If the file cannot be opened
+     */
+    private void readSafe(String filename) throws FileNotFoundException {
+        this.Safe = SafeParser.read(filename);
+        this.Colnum = Safe.length;
+        this.Rownum = Safe[0].length;
+        this.tracker = new SafeTracker(Safe, Rownum, Colnum);
+        cancelCompletion();
+        this.completion = null;
+        this.completionGaveUpOn = null;
+    }
+
     /**
      * A utility method that indicates the model has changed and
-     * notifies observers
+     * notifies observers, telling them what changed.
+     * @param change What changed
      */
-    private void announceChange() {
+    private void announceChange(ModelChange change) {
         setChanged();
-        notifyObservers();
+        notifyObservers(change);
+    }
+
+    /**
+     * Returns a change to a single cell.
+     * @param col The column of the cell
+     * @param row The row of the cell
+     * @return ModelChange
+     */
+    private ModelChange cellChanged(int col, int row) {
+        return new ModelChange(ModelChange.Kind.CELLS, new int[] {row * Colnum + col}, Colnum);
+    }
+
+    /**
+     * Returns the change made by adding or removing a laser: the cell itself, and every cell its beams reach.
+     * @param col The column of the laser
+     * @param row The row of the laser
+     * @return ModelChange
+     */
+    private ModelChange laserChanged(int col, int row) {
+        return new ModelChange(ModelChange.Kind.CELLS, tracker.reach(col, row), Colnum);
+    }
+
+    /**
+     * Points out an error at a new cell, and tells the observers which cells need to be redrawn: the one
+     * that was pointed out before, and the one pointed out now.
+     * @param row The row of the error, or -1 for none
+     * @param col The column of the error, or -1 for none
+     */
+    private void moveError(int row, int col) {
+        int before = errorR < 0 ? -1 : errorR * Colnum + errorC;
+        int after = row < 0 ? -1 : row * Colnum + col;
+        this.errorR = row;
+        this.errorC = col;
+        int[] cells;
+        if (before == after) {
+            cells = before < 0 ? new int[0] : new int[] {before};
+        } else if (before < 0 || after < 0) {
+            cells = new int[] {Math.max(before, after)};
+        } else {
+            cells = new int[] {before, after};
+        }
+        announceChange(new ModelChange(ModelChange.Kind.ERROR, cells, Colnum));
     }
 
     /**
@@ -111,11 +207,12 @@ public class LasersModel extends Observable {
      */
     public boolean addLaser(int col, int row) {
         if (Safe[col][row] != EMPTY && Safe[col][row] != BEAM) {
-            announceChange();
+            announceChange(cellChanged(col, row));
             return false;
         } else {
             Safe[col][row] = LASER;
-            announceChange();
+            tracker.placeLaser(col, row);
+            announceChange(laserChanged(col, row));
             return true;
         }
     }
@@ -128,34 +225,31 @@ public class LasersModel extends Observable {
      */
     public boolean removeLaser(int col, int row) {
         if (Character.isDigit(Safe[col][row]) || Safe[col][row] == XPILLAR) {
-            announceChange();
+            announceChange(cellChanged(col, row));
             return false;
         } else {
+            ModelChange change = cellChanged(col, row);
+            if (Safe[col][row] == LASER) {
+                tracker.removeLaser(col, row);
+                change = laserChanged(col, row);
+            }
             Safe[col][row] = EMPTY;
-            announceChange();
+            announceChange(change);
             return true;
         }
     }
 
     /**
      * With the current Safe grid, the method creates a copy with the Beams for the lasers tiles
-     * added in.
+     * added in. The beams are already known, so every empty tile a beam reaches is marked.
      * @return char[][]
      */
     public char[][] copyWithBeams() {
         char[][] copy = new char[this.Colnum][this.Rownum];
         for(int i=0; i < Colnum; i++) {
             for (int j = 0; j < Rownum; j++) {
-                copy[i][j] = this.Safe[i][j];
-            }
-        }
-
-        for (int i= 0; i < Rownum; i++){
-            for (int j = 0; j < Colnum; j++){
-                char curr = copy[j][i];
-                if(curr == LASER){
-                    addBeams(i,j,copy);
-                }
+                char curr = this.Safe[i][j];
+                copy[i][j] = (curr == EMPTY || curr == BEAM) && tracker.isLit(i, j) ? BEAM : curr;
             }
         }
         return copy;
@@ -208,46 +302,22 @@ public class LasersModel extends Observable {
     }
 
     /**
-     * Returns a boolean if the Safe is Valid.
+     * Returns a boolean if the Safe is Valid. The tracker keeps every error up to date as lasers are
+     * added and removed, so this only has to look up the first one, going along each row in turn.
      * @return boolean
      */
     public boolean isValid() {
-        char[][] currGrid = this.copyWithBeams();
-        for (int r = 0; r < this.Rownum; r++) {
-            for (int c = 0; c < this.Colnum; c++) {
-                char curr = currGrid[c][r];
-                if (curr == EMPTY) {
-                    this.R = r;
-                    this.C = c;
-                    errorC = c;
-                    errorR = r;
-                    announceChange();
-                    return false;
-                } else if (curr == LASER) {
-                    if (laserNeighbor(c, r)) {
-                        this.R = r;
-                        this.C = c;
-                        errorC = c;
-                        errorR = r;
-                        announceChange();
-                        return false;
-                    }
-                } else if (Character.isDigit(curr)) {
-                    int lasers = countLasers(c, r);
-                    if (lasers != Character.getNumericValue(curr)) {
-                        this.R = r;
-                        this.C = c;
-                        errorC = c;
-                        errorR = r;
-                        announceChange();
-                        return false;
-                    }
-                }
-            }
+        int error = tracker.firstError();
+        if (error >= 0) {
+            this.R = error / Colnum;
+            this.C = error % Colnum;
+            moveError(R, C);
+            return false;
         }
-        announceChange();
+        moveError(-1, -1);
         return true;
     }
+
     /**
      * Takes in a coordinate to a current Laser tile, checks if there is another laser in the
      * same horizontal and vertical line and returns true, false otherwise.
@@ -353,20 +423,7 @@ public class LasersModel extends Observable {
      * @return
      */
     public boolean isGoal() {
-        int emptyCount = 0;
-        char[][] currGrid = this.copyWithBeams();
-        for (int c = 0; c < this.Colnum; c++){
-            for(int r = 0; r < this.Rownum; r++){
-                char curr = currGrid[c][r];
-                if (curr == EMPTY){
-                    emptyCount++;
-                }
-            }
-        }
-        if (emptyCount > 0){
-            return false;
-        }
-        return true;
+        return tracker.isGoal();
     }
 
     /**
@@ -465,7 +522,7 @@ public class LasersModel extends Observable {
             }
             else {
                 if (Integer.parseInt(action[1]) >= this.Rownum || Integer.parseInt(action[2]) >= this.Colnum || Integer.parseInt(action[2]) < 0 || Integer.parseInt(action[1]) < 0){
-                    announceChange();
+                    announceChange(new ModelChange(ModelChange.Kind.CELLS));
                     System.out.println("Error adding laser at: (" + action[2] + ", " + action[1] +")");
 
                 }
@@ -561,11 +618,12 @@ public class LasersModel extends Observable {
 
     /**
      * Resets the errorR and errorC fields to -1. The only purpose of these fields is to point out any errors, and since -1 cannot be represented on the grid,
-     * their default positions are set to this when there is no error.
+     * their default positions are set to this when there is no error. If an error was being pointed out, the observers are told so they can redraw its cell.
      */
     public void resetErrorRC(){
-        this.errorR = -1;
-        this.errorC = -1;
+        if (this.errorR >= 0) {
+            moveError(-1, -1);
+        }
     }
 
     /**
@@ -583,9 +641,189 @@ public class LasersModel extends Observable {
      */
     public void solve() throws FileNotFoundException {
         if(!(this.SolvedSafe == null)){
-            this.Safe = this.SolvedSafe;
+            this.Safe = new char[Colnum][];
+            for (int col = 0; col < Colnum; col++) {
+                this.Safe[col] = this.SolvedSafe[col].clone();
+            }
+            this.tracker = new SafeTracker(Safe, Rownum, Colnum);
+        }
+        announceChange(new ModelChange(ModelChange.Kind.SAFE));
+    }
+
+    /**
+     * Runs a hint for the Safe without waiting for the solution, by working out a laser that the lasers already placed
+     * force, using the HintFinder. If one is found, it is added and R and C point to it. This only takes a moment, and
+     * does not need the Solution Thread to have finished.
+     * @return boolean indicating whether a laser was added; if not, the solution has to be used instead.
+     */
+    public boolean runQuickHint(){
+        Optional<HintFinder.Hint> hint = HintFinder.find(this.Safe, HINT_TIME_LIMIT);
+        if (!hint.isPresent()) {
+            return false;
+        }
+        this.R = hint.get().getRow();
+        this.C = hint.get().getCol();
+        this.Safe[C][R] = LASER;
+        tracker.placeLaser(C, R);
+        announceChange(laserChanged(C, R));
+        return true;
+    }
+
+    /**
+     * Runs a hint for the Safe from a solution that keeps every laser the user has placed, rather than from the
+     * solution found when the safe was loaded. The user's lasers may differ from that one and still be part of another.
+     * Only a solution already known is used, so call findCompletion() first.
+     * @return boolean indicating whether a laser was added. If not, either no solution keeps the user's lasers,
+     * looking for one gave up, which HintTimedOut() tells, or none has been looked for yet.
+     */
+    public boolean runHint(){
+        char[][] solution = knownCompletion();
+        if (solution == null || solution == SolutionCache.UNSOLVABLE) {
+            return false;
+        }
+        return runHint(solution);
+    }
+
+    /**
+     * Returns true unless the lasers the user has placed so far are known not to be part of any solution. Only what
+     * is already known is used, so call findCompletion() first.
+     * @return boolean
+     */
+    public boolean isCompletable(){
+        return knownCompletion() != SolutionCache.UNSOLVABLE;
+    }
+
+    /**
+     * Returns true if the last look for a solution keeping the user's lasers gave up on the safe as it is now.
+     * @return boolean
+     */
+    public boolean HintTimedOut(){
+        char[][] gaveUpOn = completionGaveUpOn;
+        if (gaveUpOn == null) {
+            return false;
+        }
+        for (int col = 0; col < Colnum; col++) {
+            if (!Arrays.equals(gaveUpOn[col], Safe[col])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the Completion Thread is still looking for a solution that keeps the user's lasers.
+     * @return boolean
+     */
+    public synchronized boolean CompletionRunning(){
+        return CompletionThread != null;
+    }
+
+    /**
+     * Finds out whether a solution keeps every laser the user has placed, so that runHint() and isCompletable() can
+     * answer. The last one found, and the solution found when the safe was loaded, are used if they still keep them all,
+     * and then the completions cache is asked. Only if none of them knows is the safe solved again, starting from the
+     * user's lasers, on a Completion Thread that announces a SOLVER change once it is done, like the Solution Thread.
+     * @return boolean true if the answer is known already, false if it is still being looked for
+     */
+    public synchronized boolean findCompletion(){
+        if (knownCompletion() != null || HintTimedOut()) {
+            return true;
+        }
+        if (CompletionThread == null) {
+            CompletionThread(cancelCompletion = new AtomicBoolean());
+            CompletionThread.start();
+        }
+        return false;
+    }
+
+    /**
+     * Returns a solution that keeps every laser the user has placed, if one is known without searching.
+     * @return The solution, SolutionCache.UNSOLVABLE if there is none, or null if it is not known
+     */
+    private char[][] knownCompletion(){
+        char[][] last = completion;
+        if (keepsLasers(last)) {
+            return last;
+        }
+        char[][] solved = SolvedSafe;
+        if (keepsLasers(solved)) {
+            completion = solved;
+            return solved;
+        }
+        char[][] solution = completions.get(new SafeBoard(Safe, Rownum, Colnum));
+        if (solution != null && solution != SolutionCache.UNSOLVABLE) {
+            completion = solution;
+        }
+        return solution;
+    }
+
+    /**
+     * Sets the Completion Thread to a new thread that solves the safe as it is now, lasers and all. What it finds is
+     * put in the completions cache, unless it gave up, and kept unless it was cancelled.
+     * @param cancelled The thread's cancellation flag, which also stops its search
+     */
+    private void CompletionThread(AtomicBoolean cancelled){
+        SafeBoard board = new SafeBoard(Safe, Rownum, Colnum);
+        char[][] lasers = new char[Colnum][];
+        for (int col = 0; col < Colnum; col++) {
+            lasers[col] = Safe[col].clone();
+        }
+        CompletionThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                SafeConfig init = new SafeConfig(new SafeBoard(board));
+                init.setCellOrder(new MostConstrainedOrder());
+                Backtracker search = new Backtracker(false, cancelled);
+                search.setTimeLimit(COMPLETION_TIME_LIMIT);
+                Optional<Configuration> found = init.propagate() ? search.solveInPlace(init) : Optional.empty();
+                char[][] solution = found.isPresent() ? found.get().getSafe() : null;
+                boolean gaveUp = solution == null && (search.getStats().isTimedOut() || cancelled.get());
+                if (!gaveUp) {
+                    completions.put(board, solution);
+                }
+                synchronized (LasersModel.this) {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    if (solution != null) {
+                        completion = solution;
+                    } else if (gaveUp) {
+                        completionGaveUpOn = lasers;
+                    }
+                    CompletionThread = null;
+                }
+                announceChange(new ModelChange(ModelChange.Kind.SOLVER));
+            }
+        });
+        CompletionThread.setDaemon(true);
+    }
+
+    /**
+     * Cancels the current Completion Thread, if there is one: its search stops within a few nodes, and whatever it
+     * finds is thrown away.
+     */
+    private synchronized void cancelCompletion(){
+        cancelCompletion.set(true);
+        CompletionThread = null;
+    }
+
+    /**
+     * Returns true if a solution has a laser everywhere the user has placed one.
+     * @param solution The solution, or null
+     * @return boolean false if there is no solution
+     */
+    private boolean keepsLasers(char[][] solution){
+        if (solution == null) {
+            return false;
+        }
+        for (int col = 0; col < Colnum; col++) {
+            for (int row = 0; row < Rownum; row++) {
+                if (Safe[col][row] == LASER && solution[col][row] != LASER) {
+                    return false;
+                }
+            }
         }
-        announceChange();
+        return true;
     }
 
     /**
@@ -603,7 +841,8 @@ public class LasersModel extends Observable {
                 this.C = col;
                 if (other[col][row] == LASER && this.Safe[col][row] == EMPTY) {
                     this.Safe[col][row] = LASER;
-                    announceChange();
+                    tracker.placeLaser(col, row);
+                    announceChange(laserChanged(col, row));
                     return true;
                 } else if (this.Safe[col][row] == LASER && other[col][row] != LASER) {
                     return false;
@@ -618,25 +857,13 @@ public class LasersModel extends Observable {
      */
     public void restart(){
         try {
-            Scanner in = new Scanner(new File(this.filename));
-            String[] line = in.nextLine().split(" ");
-            this.Rownum = Integer.parseInt(line[0]);
-            this.Colnum = Integer.parseInt(line[1]);
-            resetErrorRC();
-
-            this.Safe = new char[this.Colnum][this.Rownum];
-
-            for (int i = 0; i < Rownum; i++) {
-                char[] row = in.nextLine().replaceAll(" ", "").toCharArray();
-                for (int k = 0; k < Colnum; k++) {
-                    Safe[k][i] = row[k];
-                }
-            }
-            in.close();
+            readSafe(this.filename);
+            this.errorR = -1;
+            this.errorC = -1;
         }catch (Exception e){
             System.out.println(e);
         }
-        announceChange();
+        announceChange(new ModelChange(ModelChange.Kind.SAFE));
     }
 
     /**
@@ -645,42 +872,25 @@ public class LasersModel extends Observable {
      * @throws FileNotFoundException
      */
     public void loadNewFile(String filename) throws FileNotFoundException{
-        if (SolutionThread.isAlive()) {
-            try {
-                SolutionThread.stop();
-            } catch (Exception e) {
-
-            }
+        // under the lock, so the old Solution Thread either published before the reset or never does
+        synchronized (this) {
+            cancelSolver();
+            checkedSafe = false;
+            timedOut = false;
+            SolvedSafe = null;
         }
         try {
-            Scanner in = new Scanner(new File(filename));
-
+            readSafe(filename);
             this.filename = filename;
-            resetErrorRC();
-            SolvedSafe = null;
-
-            String[] line = in.nextLine().split(" ");
-            this.Rownum = Integer.parseInt(line[0]);
-            this.Colnum = Integer.parseInt(line[1]);
-
-            this.Safe = new char[this.Colnum][this.Rownum];
-
-            for (int i = 0; i < Rownum; i++) {
-                char[] row = in.nextLine().replaceAll(" ", "").toCharArray();
-                for (int k = 0; k < Colnum; k++) {
-                    Safe[k][i] = row[k];
-                }
-            }
-            in.close();
+            this.errorR = -1;
+            this.errorC = -1;
         }catch (Exception e){
             System.out.println(e);
         }
        // display();
         LoadThread(filename);
         getSolution();
-        checkedSafe = false;
-        SolvedSafe = null;
-        announceChange();
+        announceChange(new ModelChange(ModelChange.Kind.SAFE));
     }
 
     /**
@@ -705,6 +915,14 @@ public class LasersModel extends Observable {
         return (SolvedSafe != null) && checkedSafe;
     }
 
+    /**
+     * Returns true if the solver gave up before finding out whether there is a solution.
+     * @return boolean
+     */
+    public boolean SolutionTimedOut(){
+        return timedOut;
+    }
+
     /**
      * Returns true if the thread for the backtracking is still running.
      * @return boolean
@@ -715,37 +933,78 @@ public class LasersModel extends Observable {
 
     /**
      * Method used when a new file is loaded to the GUI and model.
-     * It sets the Solution Thread to a new thread for the new file.
+     * It sets the Solution Thread to a new thread for the new file. The thread gets its own
+     * cancellation flag, so a thread that is cancelled never overwrites the results of a later one.
      * @param filename
      */
     public void LoadThread(String filename){
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        cancelSolution = cancelled;
+        solverStop = stop;
+        // each thread has its own solver, so a cancelled search still running cannot mix up its counters with
+        // this one's
+        ParallelBacktracker solver = new ParallelBacktracker();
+        solver.setTimeLimit(SOLVE_TIME_LIMIT);
         SolutionThread = new Thread(new Runnable() {
             @Override
             public void run() {
-                Backtracker bc = new Backtracker(false);
-                Optional<Configuration> Solution;
+                char[][] solution = null;
+                boolean gaveUp = false;
                 try {
-                    Solution = bc.solve(new SafeConfig(filename));
-                    if (Solution.isPresent()){
-                        SolvedSafe = Solution.get().getSafe();
+                    SafeConfig init = new SafeConfig(filename);
+                    SafeBoard board = new SafeBoard(init.getBoard());
+                    solution = CACHE.get(board);
+                    if (solution == null) {
+                        init.setCellOrder(new MostConstrainedOrder());
+                        boolean complete = true;
+                        if (init.propagate()) {
+                            Optional<Configuration> Solution = solver.solve(init, stop);
+                            if (Solution.isPresent()) {
+                                solution = Solution.get().getSafe();
+                            } else {
+                                gaveUp = solver.getStats().isTimedOut();
+                                complete = !gaveUp && !stop.get();
+                            }
+                        }
+                        if (complete) {
+                            CACHE.put(board, solution);
+                        }
+                    } else if (solution == SolutionCache.UNSOLVABLE) {
+                        solution = null;
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
-                checkedSafe = true;
+                synchronized (LasersModel.this) {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    SolvedSafe = solution;
+                    timedOut = gaveUp;
+                    checkedSafe = true;
+                }
+                announceChange(new ModelChange(ModelChange.Kind.SOLVER));
             }
         });
+        SolutionThread.setDaemon(true);
+    }
+
+    /**
+     * Cancels the current Solution Thread: its search stops within a few nodes, and whatever it
+     * finds is thrown away.
+     */
+    private synchronized void cancelSolver(){
+        cancelSolution.set(true);
+        solverStop.set(true);
     }
 
     /**
      * Method used when the GUI is closing.
-     * Terminates the Solution Thread if it is still alive.
+     * Terminates the Solution Thread and the Completion Thread if they are still alive.
      */
     public void close(){
-        if (SolutionThread.isAlive()){
-            try {
-                SolutionThread.stop();
-            }catch (Exception e){}
-        }
+        cancelSolver();
+        cancelCompletion();
     }
 }
@@ -0,0 +1,103 @@
+package model;
+
+/**
+ * Describes what changed in a LasersModel. It is passed to every observer
+ * as the argument of update(), so a view can redraw only what changed
+ * instead of the whole safe.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class ModelChange {
+
+    /**
+     * The kinds of change the model announces.
+     */
+    public enum Kind {
+        /** Some cells now look different: a laser was added or removed, and the beams moved with it.*/
+        CELLS,
+        /** The error being pointed out moved, or went away.*/
+        ERROR,
+        /** The solver finished looking for a solution, or for one that keeps the user's lasers.*/
+        SOLVER,
+        /** The whole safe was replaced, so every cell may have changed, and so may its size.*/
+        SAFE
+    }
+
+    /** What kind of change this is.*/
+    private final Kind kind;
+
+    /** The cells that changed, as row * columns + column.*/
+    private final int[] cells;
+
+    /** The number of columns in the safe, to turn cells back into coordinates.*/
+    private final int colnum;
+
+    /**
+     * Creates a change.
+     *
+     * @param kind   What kind of change it is
+     * @param cells  The cells that changed, as row * columns + column
+     * @param colnum The number of columns in the safe
+     */
+    public ModelChange(Kind kind, int[] cells, int colnum) {
+        this.kind = kind;
+        this.cells = cells;
+        this.colnum = colnum;
+    }
+
+    /**
+     * Creates a change that is not about any cell in particular.
+     *
+     * @param kind What kind of change it is
+     */
+    public ModelChange(Kind kind) {
+        this(kind, new int[0], 1);
+    }
+
+    /**
+     * Returns what kind of change this is.
+     * @return Kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the number of cells that changed. A SAFE change lists none,
+     * since all of them may have.
+     * @return int
+     */
+    public int size() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the column of a cell that changed.
+     *
+     * @param i Which cell, from 0
+     * @return int
+     */
+    public int getCol(int i) {
+        return cells[i] % colnum;
+    }
+
+    /**
+     * Returns the row of a cell that changed.
+     *
+     * @param i Which cell, from 0
+     * @return int
+     */
+    public int getRow(int i) {
+        return cells[i] / colnum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder display = new StringBuilder(kind.toString());
+        for (int i = 0; i < size(); i++) {
+            display.append(i == 0 ? " " : ", ").append("(").append(getRow(i)).append(", ").append(getCol(i)).append(")");
+        }
+        return display.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package model;
+
+import backtracking.SafeBoard;
+
+/**
+ * Keeps track of what is wrong with the safe a player is working on, so
+ * the model can answer whether it is valid, whether it is a goal, and
+ * where the first error is without looking at the whole safe.
+ *
+ * The beams and pillar counts live in a SafeBoard, which updates them as
+ * lasers come and go. On top of that this class keeps one bit per cell
+ * that is in error, the way the model's check sees it: an empty cell no
+ * beam reaches, a laser another laser's beam reaches, or a numbered
+ * pillar with the wrong number of lasers next to it. A laser only
+ * changes the cells along its row and column and the pillars next to
+ * it, so only those bits are looked at again. A second level of bits,
+ * one per word of the first, finds the first error in a couple of steps.
+ *
+ * @author Alex Williams
+ * @author Jethro Masangya
+ */
+public class SafeTracker {
+
+    /** The beams, lasers and pillar counts.*/
+    private final SafeBoard board;
+
+    /** One bit per cell that is in error, in row-major order.*/
+    private final long[] errors;
+
+    /** One bit per word of errors that has any bit set.*/
+    private final long[] errorWords;
+
+    /** The number of cells in error.*/
+    private int errorCount;
+
+    /** Scratch space for a cell's neighbours.*/
+    private final int[] around = new int[4];
+
+    /**
+     * Starts tracking a safe.
+     *
+     * @param safe   The safe, indexed [col][row], with any lasers already placed
+     * @param rownum The number of rows
+     * @param colnum The number of columns
+     */
+    public SafeTracker(char[][] safe, int rownum, int colnum) {
+        this.board = new SafeBoard(safe, rownum, colnum);
+        this.errors = new long[(board.size() + 63) >>> 6];
+        this.errorWords = new long[(errors.length + 63) >>> 6];
+        for (int cell = 0; cell < board.size(); cell++) {
+            check(cell);
+        }
+    }
+
+    /**
+     * Places a laser on an empty cell and rechecks the cells it affects.
+     *
+     * @param col The column
+     * @param row The row
+     */
+    public void placeLaser(int col, int row) {
+        int cell = row * board.getColnum() + col;
+        board.placeLaser(cell);
+        recheck(cell);
+    }
+
+    /**
+     * Removes a laser and rechecks the cells it affected.
+     *
+     * @param col The column
+     * @param row The row
+     */
+    public void removeLaser(int col, int row) {
+        int cell = row * board.getColnum() + col;
+        board.removeLaser(cell);
+        recheck(cell);
+    }
+
+    /**
+     * Returns true if no cell is in error.
+     * @return boolean
+     */
+    public boolean isValid() {
+        return errorCount == 0;
+    }
+
+    /**
+     * Returns true if every cell that is not a pillar or a laser is lit.
+     * @return boolean
+     */
+    public boolean isGoal() {
+        return board.getDark() == 0;
+    }
+
+    /**
+     * Returns the number of cells in error.
+     * @return int
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Returns the first cell in error, going along each row in turn.
+     *
+     * @return The cell, as row * columns + column, or -1 if there is none
+     */
+    public int firstError() {
+        for (int w = 0; w < errorWords.length; w++) {
+            if (errorWords[w] != 0) {
+                int word = (w << 6) + Long.numberOfTrailingZeros(errorWords[w]);
+                return (word << 6) + Long.numberOfTrailingZeros(errors[word]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if a cell is lit by a beam.
+     *
+     * @param col The column
+     * @param row The row
+     * @return boolean
+     */
+    public boolean isLit(int col, int row) {
+        return board.isLit(row * board.getColnum() + col);
+    }
+
+    /**
+     * Returns the cells a laser on a cell lights: the cell itself and the
+     * rest of its row and column segments. These are the cells that look
+     * different after a laser is placed there or removed.
+     *
+     * @param col The column
+     * @param row The row
+     * @return The cells, as row * columns + column
+     */
+    public int[] reach(int col, int row) {
+        int cell = row * board.getColnum() + col;
+        int across = board.getRight(cell) - board.getLeft(cell) + 1;
+        int down = (board.getBottom(cell) - board.getTop(cell)) / board.getColnum();
+        int[] cells = new int[across + down];
+        int n = 0;
+        for (int i = board.getLeft(cell); i <= board.getRight(cell); i++) {
+            cells[n++] = i;
+        }
+        for (int i = board.getTop(cell); i <= board.getBottom(cell); i += board.getColnum()) {
+            if (i != cell) {
+                cells[n++] = i;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Rechecks the cells a laser placed on or removed from a cell affects:
+     * its row and column segments, and its neighbours.
+     *
+     * @param cell The cell
+     */
+    private void recheck(int cell) {
+        for (int i = board.getLeft(cell); i <= board.getRight(cell); i++) {
+            check(i);
+        }
+        for (int i = board.getTop(cell); i <= board.getBottom(cell); i += board.getColnum()) {
+            if (i != cell) {
+                check(i);
+            }
+        }
+        int n = board.neighbors(cell, around);
+        for (int i = 0; i < n; i++) {
+            check(around[i]);
+        }
+    }
+
+    /**
+     * Works out whether a cell is in error, and updates its bit.
+     *
+     * @param cell The cell
+     */
+    private void check(int cell) {
+        boolean wrong;
+        if (board.isLaser(cell)) {
+            wrong = board.getCover(cell) > 0;
+        } else if (board.isPillar(cell)) {
+            wrong = board.getNeed(cell) >= 0 && board.getAdjacent(cell) != board.getNeed(cell);
+        } else {
+            wrong = !board.isLit(cell);
+        }
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        if (wrong == ((errors[word] & bit) != 0)) {
+            return;
+        }
+        errors[word] ^= bit;
+        errorCount += wrong ? 1 : -1;
+        if (errors[word] == 0) {
+            errorWords[word >>> 6] &= ~(1L << word);
+        } else {
+            errorWords[word >>> 6] |= 1L << word;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Observable;
 import java.util.Observer;
 
 import model.LasersModel;
+import model.ModelChange;
 
 /**
  * This class represents the view portion of the plain text UI.  It
@@ -38,12 +39,16 @@ public class LasersPTUI implements Observer {
     public LasersModel getModel() { return this.model; }
 
     /**
-     * Updates the display by calling the model's display method.
+     * Updates the display by calling the model's display method. The solver finishing does not change the safe,
+     * so it is not displayed again then.
      * @param o The observable Object
-     * @param arg The argument object.
+     * @param arg What changed, a ModelChange.
      */
     @Override
     public void update(Observable o, Object arg) {
+        if (arg instanceof ModelChange && ((ModelChange) arg).getKind() == ModelChange.Kind.SOLVER) {
+            return;
+        }
         model.display();
     }
 }